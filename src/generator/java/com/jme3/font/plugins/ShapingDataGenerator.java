@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import com.ibm.icu.lang.UCharacter;
+import com.ibm.icu.lang.UProperty;
+import com.ibm.icu.text.Normalizer2;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates ArabicShapingData.java from the joining types (the ArabicShaping
+ * data) and the presentation form decompositions of the Unicode Character
+ * Database bundled with ICU4J.
+ * <p>
+ * Only letters with presentation forms can be shaped. The letters without
+ * any (most of the Arabic Supplement and Extended blocks) are left out of
+ * the table, so they are non-joining: otherwise their neighbours would join
+ * to a letter drawn unjoined. Dual-joining letters without initial form are
+ * listed as right-joining for the same reason.
+ * <p>
+ * Run through "gradle generateShapingData", with the path of the file to
+ * write as the only argument.
+ *
+ * @author Ali-RS
+ */
+public class ShapingDataGenerator {
+
+    /**
+     * The Arabic, Arabic Supplement and Arabic Extended-B and A blocks, which
+     * are listed in the table, first and last character of each.
+     */
+    private final static int[] RANGES = {0x0600, 0x06FF, 0x0750, 0x077F, 0x0870, 0x08FF, 0x200C, 0x200D};
+    /**
+     * The Arabic Presentation Forms-A and B blocks, first and last character
+     * of each.
+     */
+    private final static int[] PRESENTATION_FORMS = {0xFB50, 0xFDFF, 0xFE70, 0xFEFF};
+
+    private final static int FINAL = 0;
+    private final static int INITIAL = 1;
+    private final static int MEDIAL = 2;
+
+    private final static String HEADER = String.join("\n",
+            "/*",
+            " * Copyright (c) 2009-2021 jMonkeyEngine",
+            " * All rights reserved.",
+            " *",
+            " * Redistribution and use in source and binary forms, with or without",
+            " * modification, are permitted provided that the following conditions are",
+            " * met:",
+            " *",
+            " * * Redistributions of source code must retain the above copyright",
+            " *   notice, this list of conditions and the following disclaimer.",
+            " *",
+            " * * Redistributions in binary form must reproduce the above copyright",
+            " *   notice, this list of conditions and the following disclaimer in the",
+            " *   documentation and/or other materials provided with the distribution.",
+            " *",
+            " * * Neither the name of 'jMonkeyEngine' nor the names of its contributors",
+            " *   may be used to endorse or promote products derived from this software",
+            " *   without specific prior written permission.",
+            " *",
+            " * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS",
+            " * \"AS IS\" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED",
+            " * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR",
+            " * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR",
+            " * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,",
+            " * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,",
+            " * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR",
+            " * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF",
+            " * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING",
+            " * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS",
+            " * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.",
+            " */");
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: ShapingDataGenerator <ArabicShapingData.java>");
+            System.exit(1);
+        }
+
+        // The final, initial and medial forms of every letter
+        int[][] forms = new int[0x10000][];
+        Normalizer2 nfkd = Normalizer2.getNFKDInstance();
+        for (int i = 0; i < PRESENTATION_FORMS.length; i += 2) {
+            for (int c = PRESENTATION_FORMS[i]; c <= PRESENTATION_FORMS[i + 1]; c++) {
+                String letter = nfkd.getRawDecomposition(c);
+                if (letter == null || letter.length() != 1) {
+                    // Ligatures and marks
+                    continue;
+                }
+                int shape;
+                switch (UCharacter.getIntPropertyValue(c, UProperty.DECOMPOSITION_TYPE)) {
+                    case UCharacter.DecompositionType.FINAL:
+                        shape = FINAL;
+                        break;
+                    case UCharacter.DecompositionType.INITIAL:
+                        shape = INITIAL;
+                        break;
+                    case UCharacter.DecompositionType.MEDIAL:
+                        shape = MEDIAL;
+                        break;
+                    default:
+                        // The isolated form is the letter itself
+                        continue;
+                }
+                int[] shapes = forms[letter.charAt(0)];
+                if (shapes == null) {
+                    shapes = forms[letter.charAt(0)] = new int[3];
+                }
+                if (shapes[shape] == 0) {
+                    shapes[shape] = c;
+                }
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        lines.add("package com.jme3.font.plugins;");
+        lines.add("");
+        lines.add("/**");
+        lines.add(" * The joining types and presentation forms of the Arabic script, generated by");
+        lines.add(" * ShapingDataGenerator from Unicode " + UCharacter.getUnicodeVersion().getMajor()
+                + "." + UCharacter.getUnicodeVersion().getMinor() + " with \"gradle generateShapingData\".");
+        lines.add(" * Do not edit.");
+        lines.add(" *");
+        lines.add(" * @author Ali-RS");
+        lines.add(" */");
+        lines.add("final class ArabicShapingData {");
+        lines.add("");
+        lines.add("    /**");
+        lines.add("     * The number of values of each character.");
+        lines.add("     */");
+        lines.add("    final static int STRIDE = 5;");
+        lines.add("    /**");
+        lines.add("     * The joining characters of the Arabic blocks and the joining controls, all");
+        lines.add("     * other characters are non-joining. Each character is followed by its");
+        lines.add("     * Unicode joining type (D, R, L, C or T) and its final, initial and medial");
+        lines.add("     * presentation forms, zero when it has none. Letters without presentation");
+        lines.add("     * forms are left out and dual-joining letters without initial form are");
+        lines.add("     * right-joining, since they can not be drawn joined.");
+        lines.add("     */");
+        lines.add("    final static char[] CHARACTERS = {");
+        for (int i = 0; i < RANGES.length; i += 2) {
+            for (int c = RANGES[i]; c <= RANGES[i + 1]; c++) {
+                char type = getJoiningType(c);
+                if (type == 'U') {
+                    continue;
+                }
+                int[] shapes = forms[c];
+                if (shapes != null && shapes[FINAL] == 0) {
+                    System.err.println("No final form: U+" + hex(c));
+                    shapes = null;
+                }
+                if (shapes == null && (type == 'D' || type == 'R' || type == 'L')) {
+                    System.err.println("No presentation forms, left non-joining: U+" + hex(c));
+                    continue;
+                }
+                if (shapes != null && type == 'D' && shapes[INITIAL] == 0) {
+                    System.err.println("Dual joining without initial form, listed as right joining: U+" + hex(c));
+                    type = 'R';
+                } else if (shapes != null && type == 'D' && shapes[MEDIAL] == 0) {
+                    System.err.println("Dual joining without medial form, the final form is used: U+" + hex(c));
+                }
+                lines.add("        0x" + hex(c) + ", '" + type + "', "
+                        + (shapes == null ? "0, 0, 0" : "0x" + hex(shapes[FINAL]) + ", " + hexOrZero(shapes[INITIAL]) + ", " + hexOrZero(shapes[MEDIAL]))
+                        + ", // " + UCharacter.getName(c));
+            }
+        }
+        lines.add("    };");
+        lines.add("");
+        lines.add("    private ArabicShapingData() {");
+        lines.add("    }");
+        lines.add("}");
+
+        Path path = Paths.get(args[0]);
+        Files.write(path, lines, StandardCharsets.UTF_8);
+        System.out.println("Wrote " + path);
+    }
+
+    private static char getJoiningType(int c) {
+        switch (UCharacter.getIntPropertyValue(c, UProperty.JOINING_TYPE)) {
+            case UCharacter.JoiningType.DUAL_JOINING:
+                return 'D';
+            case UCharacter.JoiningType.RIGHT_JOINING:
+                return 'R';
+            case UCharacter.JoiningType.LEFT_JOINING:
+                return 'L';
+            case UCharacter.JoiningType.JOIN_CAUSING:
+                return 'C';
+            case UCharacter.JoiningType.TRANSPARENT:
+                return 'T';
+            default:
+                return 'U';
+        }
+    }
+
+    private static String hex(int c) {
+        return String.format("%04X", c);
+    }
+
+    private static String hexOrZero(int c) {
+        return c == 0 ? "0" : "0x" + hex(c);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import com.jme3.font.BitmapCharacter;
+import com.jme3.font.BitmapCharacterSet;
+import com.jme3.font.BitmapFont;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares getting the BitmapCharacters of every line of a corpus with
+ * parse() and a lookup in the character set per character, like BitmapText
+ * does, against FontGlyphResolver.
+ *
+ * @author Ali-RS
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FontGlyphResolverBenchmark {
+
+    @Param({"labels", "paragraphs", "mixed"})
+    public String corpus;
+
+    private String[] lines;
+    private PersianGlyphParser parser;
+    private BitmapCharacterSet charSet;
+    private FontGlyphResolver resolver;
+    private BitmapCharacter[] characters;
+
+    @Setup
+    public void setup() throws IOException {
+        parser = new PersianGlyphParser();
+        lines = GoldenOutput.loadCorpus(corpus);
+        int longest = 0;
+        for (String line : lines) {
+            longest = Math.max(longest, line.length());
+        }
+        characters = new BitmapCharacter[longest];
+
+        // A font with every glyph parsed text can contain
+        charSet = new BitmapCharacterSet();
+        charSet.setRenderedSize(32);
+        for (int c = 0x20; c < 0xFF00; c++) {
+            if (c < 0x7F || (c >= 0x0600 && c < 0x0700) || c >= 0xFB50) {
+                BitmapCharacter character = new BitmapCharacter((char) c);
+                character.setXAdvance(16);
+                charSet.addCharacter(c, character);
+            }
+        }
+        BitmapFont font = new BitmapFont();
+        font.setCharSet(charSet);
+        resolver = new FontGlyphResolver(font, parser);
+    }
+
+    @Benchmark
+    public void parseAndLookUp(Blackhole bh) {
+        for (String line : lines) {
+            CharSequence shaped = parser.parse(line);
+            for (int i = 0, n = shaped.length(); i < n; i++) {
+                characters[i] = charSet.getCharacter(shaped.charAt(i));
+            }
+            bh.consume(characters);
+        }
+    }
+
+    @Benchmark
+    public void resolve(Blackhole bh) {
+        for (String line : lines) {
+            bh.consume(resolver.resolve(line, characters, 0));
+        }
+    }
+}
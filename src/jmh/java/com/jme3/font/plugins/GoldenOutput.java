@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The benchmark corpora and their expected output, so performance work on
+ * the parser cannot change what it produces without notice.
+ * <p>
+ * Run without arguments to check every corpus against its golden output, or
+ * with "update" and the golden directory to rewrite the golden output after
+ * an intended change.
+ * <p>
+ * Each line of a corpus is one text, line feeds within a text are written
+ * as \n in the corpus and golden files.
+ *
+ * @author Ali-RS
+ */
+public class GoldenOutput {
+
+    public final static String[] CORPORA = {"labels", "paragraphs", "digits", "mixed", "all-digits", "ascii"};
+
+    public static void main(String[] args) throws IOException {
+        PersianGlyphParser parser = new PersianGlyphParser();
+        if (args.length == 2 && args[0].equals("update")) {
+            for (String corpus : CORPORA) {
+                List<String> output = new ArrayList<>();
+                for (String line : load("corpus", corpus)) {
+                    output.add(escape(parser.parse(line).toString()));
+                }
+                Files.write(Paths.get(args[1], corpus + ".txt"), output, StandardCharsets.UTF_8);
+            }
+            return;
+        }
+
+        for (String corpus : CORPORA) {
+            verify(parser, corpus);
+        }
+        System.out.println("Golden output matches for " + CORPORA.length + " corpora");
+    }
+
+    /**
+     * Loads the lines of the named corpus.
+     */
+    public static String[] loadCorpus(String corpus) throws IOException {
+        return load("corpus", corpus);
+    }
+
+    /**
+     * Parses every line of the corpus and compares it with its golden output.
+     *
+     * @throws IllegalStateException if any line is parsed differently
+     */
+    public static void verify(PersianGlyphParser parser, String corpus) throws IOException {
+        String[] lines = load("corpus", corpus);
+        String[] expected = load("golden", corpus);
+        if (lines.length != expected.length) {
+            throw new IllegalStateException("Golden output of " + corpus + " has " + expected.length
+                    + " lines, corpus has " + lines.length);
+        }
+        for (int i = 0; i < lines.length; i++) {
+            String actual = parser.parse(lines[i]).toString();
+            if (!actual.equals(expected[i])) {
+                throw new IllegalStateException("Line " + (i + 1) + " of " + corpus + " is parsed to \""
+                        + escape(actual) + "\" instead of \"" + escape(expected[i]) + "\"");
+            }
+        }
+    }
+
+    private static String[] load(String directory, String corpus) throws IOException {
+        String name = directory + "/" + corpus + ".txt";
+        InputStream in = GoldenOutput.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("Missing resource " + name);
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line.replace("\\n", "\n"));
+            }
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    private static String escape(String text) {
+        return text.replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures parsing every line of a corpus, in ns per corpus and, with
+ * parseThroughput and its chars counter, in characters per second. Run with
+ * the gc profiler (the default of the jmh task) to see the bytes allocated
+ * per operation.
+ *
+ * @author Ali-RS
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersianGlyphParserBenchmark {
+
+    /**
+     * The number of characters read from each line by parseViewPrefix, like
+     * a label truncated with an ellipsis.
+     */
+    private final static int PREFIX_LENGTH = 32;
+
+    @Param({"labels", "paragraphs", "digits", "mixed", "all-digits", "ascii"})
+    public String corpus;
+
+    private String[] lines;
+    private int characters;
+    private PersianGlyphParser parser;
+    private char[] buffer;
+
+    /**
+     * Counts the characters parsed by parseThroughput, reported per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Characters {
+        public long chars;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            chars = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        parser = new PersianGlyphParser();
+        GoldenOutput.verify(parser, corpus);
+
+        lines = GoldenOutput.loadCorpus(corpus);
+        int longest = 0;
+        for (String line : lines) {
+            characters += line.length();
+            longest = Math.max(longest, line.length());
+        }
+        buffer = new char[longest];
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) {
+        for (String line : lines) {
+            bh.consume(parser.parse(line));
+        }
+    }
+
+    /**
+     * Same as parse, in operations and characters per second.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void parseThroughput(Blackhole bh, Characters counter) {
+        for (String line : lines) {
+            bh.consume(parser.parse(line));
+        }
+        counter.chars += characters;
+    }
+
+    @Benchmark
+    public void parseInto(Blackhole bh) {
+        for (String line : lines) {
+            bh.consume(parser.parseInto(line, buffer));
+        }
+    }
+
+    @Benchmark
+    public void parseViewPrefix(Blackhole bh) {
+        for (String line : lines) {
+            CharSequence view = parser.parseView(line);
+            for (int i = 0, n = Math.min(view.length(), PREFIX_LENGTH); i < n; i++) {
+                bh.consume(view.charAt(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+/**
+ * The joining types and presentation forms of the Arabic script, generated by
+ * ShapingDataGenerator from Unicode 15.1 with "gradle generateShapingData".
+ * Do not edit.
+ *
+ * @author Ali-RS
+ */
+final class ArabicShapingData {
+
+    /**
+     * The number of values of each character.
+     */
+    final static int STRIDE = 5;
+    /**
+     * The joining characters of the Arabic blocks and the joining controls, all
+     * other characters are non-joining. Each character is followed by its
+     * Unicode joining type (D, R, L, C or T) and its final, initial and medial
+     * presentation forms, zero when it has none. Letters without presentation
+     * forms are left out and dual-joining letters without initial form are
+     * right-joining, since they can not be drawn joined.
+     */
+    final static char[] CHARACTERS = {
+        0x0610, 'T', 0, 0, 0, // ARABIC SIGN SALLALLAHOU ALAYHE WASSALLAM
+        0x0611, 'T', 0, 0, 0, // ARABIC SIGN ALAYHE ASSALLAM
+        0x0612, 'T', 0, 0, 0, // ARABIC SIGN RAHMATULLAH ALAYHE
+        0x0613, 'T', 0, 0, 0, // ARABIC SIGN RADI ALLAHOU ANHU
+        0x0614, 'T', 0, 0, 0, // ARABIC SIGN TAKHALLUS
+        0x0615, 'T', 0, 0, 0, // ARABIC SMALL HIGH TAH
+        0x0616, 'T', 0, 0, 0, // ARABIC SMALL HIGH LIGATURE ALEF WITH LAM WITH YEH
+        0x0617, 'T', 0, 0, 0, // ARABIC SMALL HIGH ZAIN
+        0x0618, 'T', 0, 0, 0, // ARABIC SMALL FATHA
+        0x0619, 'T', 0, 0, 0, // ARABIC SMALL DAMMA
+        0x061A, 'T', 0, 0, 0, // ARABIC SMALL KASRA
+        0x061C, 'T', 0, 0, 0, // ARABIC LETTER MARK
+        0x0622, 'R', 0xFE82, 0, 0, // ARABIC LETTER ALEF WITH MADDA ABOVE
+        0x0623, 'R', 0xFE84, 0, 0, // ARABIC LETTER ALEF WITH HAMZA ABOVE
+        0x0624, 'R', 0xFE86, 0, 0, // ARABIC LETTER WAW WITH HAMZA ABOVE
+        0x0625, 'R', 0xFE88, 0, 0, // ARABIC LETTER ALEF WITH HAMZA BELOW
+        0x0626, 'D', 0xFE8A, 0xFE8B, 0xFE8C, // ARABIC LETTER YEH WITH HAMZA ABOVE
+        0x0627, 'R', 0xFE8E, 0, 0, // ARABIC LETTER ALEF
+        0x0628, 'D', 0xFE90, 0xFE91, 0xFE92, // ARABIC LETTER BEH
+        0x0629, 'R', 0xFE94, 0, 0, // ARABIC LETTER TEH MARBUTA
+        0x062A, 'D', 0xFE96, 0xFE97, 0xFE98, // ARABIC LETTER TEH
+        0x062B, 'D', 0xFE9A, 0xFE9B, 0xFE9C, // ARABIC LETTER THEH
+        0x062C, 'D', 0xFE9E, 0xFE9F, 0xFEA0, // ARABIC LETTER JEEM
+        0x062D, 'D', 0xFEA2, 0xFEA3, 0xFEA4, // ARABIC LETTER HAH
+        0x062E, 'D', 0xFEA6, 0xFEA7, 0xFEA8, // ARABIC LETTER KHAH
+        0x062F, 'R', 0xFEAA, 0, 0, // ARABIC LETTER DAL
+        0x0630, 'R', 0xFEAC, 0, 0, // ARABIC LETTER THAL
+        0x0631, 'R', 0xFEAE, 0, 0, // ARABIC LETTER REH
+        0x0632, 'R', 0xFEB0, 0, 0, // ARABIC LETTER ZAIN
+        0x0633, 'D', 0xFEB2, 0xFEB3, 0xFEB4, // ARABIC LETTER SEEN
+        0x0634, 'D', 0xFEB6, 0xFEB7, 0xFEB8, // ARABIC LETTER SHEEN
+        0x0635, 'D', 0xFEBA, 0xFEBB, 0xFEBC, // ARABIC LETTER SAD
+        0x0636, 'D', 0xFEBE, 0xFEBF, 0xFEC0, // ARABIC LETTER DAD
+        0x0637, 'D', 0xFEC2, 0xFEC3, 0xFEC4, // ARABIC LETTER TAH
+        0x0638, 'D', 0xFEC6, 0xFEC7, 0xFEC8, // ARABIC LETTER ZAH
+        0x0639, 'D', 0xFECA, 0xFECB, 0xFECC, // ARABIC LETTER AIN
+        0x063A, 'D', 0xFECE, 0xFECF, 0xFED0, // ARABIC LETTER GHAIN
+        0x0640, 'C', 0, 0, 0, // ARABIC TATWEEL
+        0x0641, 'D', 0xFED2, 0xFED3, 0xFED4, // ARABIC LETTER FEH
+        0x0642, 'D', 0xFED6, 0xFED7, 0xFED8, // ARABIC LETTER QAF
+        0x0643, 'D', 0xFEDA, 0xFEDB, 0xFEDC, // ARABIC LETTER KAF
+        0x0644, 'D', 0xFEDE, 0xFEDF, 0xFEE0, // ARABIC LETTER LAM
+        0x0645, 'D', 0xFEE2, 0xFEE3, 0xFEE4, // ARABIC LETTER MEEM
+        0x0646, 'D', 0xFEE6, 0xFEE7, 0xFEE8, // ARABIC LETTER NOON
+        0x0647, 'D', 0xFEEA, 0xFEEB, 0xFEEC, // ARABIC LETTER HEH
+        0x0648, 'R', 0xFEEE, 0, 0, // ARABIC LETTER WAW
+        0x0649, 'D', 0xFEF0, 0xFBE8, 0xFBE9, // ARABIC LETTER ALEF MAKSURA
+        0x064A, 'D', 0xFEF2, 0xFEF3, 0xFEF4, // ARABIC LETTER YEH
+        0x064B, 'T', 0, 0, 0, // ARABIC FATHATAN
+        0x064C, 'T', 0, 0, 0, // ARABIC DAMMATAN
+        0x064D, 'T', 0, 0, 0, // ARABIC KASRATAN
+        0x064E, 'T', 0, 0, 0, // ARABIC FATHA
+        0x064F, 'T', 0, 0, 0, // ARABIC DAMMA
+        0x0650, 'T', 0, 0, 0, // ARABIC KASRA
+        0x0651, 'T', 0, 0, 0, // ARABIC SHADDA
+        0x0652, 'T', 0, 0, 0, // ARABIC SUKUN
+        0x0653, 'T', 0, 0, 0, // ARABIC MADDAH ABOVE
+        0x0654, 'T', 0, 0, 0, // ARABIC HAMZA ABOVE
+        0x0655, 'T', 0, 0, 0, // ARABIC HAMZA BELOW
+        0x0656, 'T', 0, 0, 0, // ARABIC SUBSCRIPT ALEF
+        0x0657, 'T', 0, 0, 0, // ARABIC INVERTED DAMMA
+        0x0658, 'T', 0, 0, 0, // ARABIC MARK NOON GHUNNA
+        0x0659, 'T', 0, 0, 0, // ARABIC ZWARAKAY
+        0x065A, 'T', 0, 0, 0, // ARABIC VOWEL SIGN SMALL V ABOVE
+        0x065B, 'T', 0, 0, 0, // ARABIC VOWEL SIGN INVERTED SMALL V ABOVE
+        0x065C, 'T', 0, 0, 0, // ARABIC VOWEL SIGN DOT BELOW
+        0x065D, 'T', 0, 0, 0, // ARABIC REVERSED DAMMA
+        0x065E, 'T', 0, 0, 0, // ARABIC FATHA WITH TWO DOTS
+        0x065F, 'T', 0, 0, 0, // ARABIC WAVY HAMZA BELOW
+        0x0670, 'T', 0, 0, 0, // ARABIC LETTER SUPERSCRIPT ALEF
+        0x0671, 'R', 0xFB51, 0, 0, // ARABIC LETTER ALEF WASLA
+        0x0679, 'D', 0xFB67, 0xFB68, 0xFB69, // ARABIC LETTER TTEH
+        0x067A, 'D', 0xFB5F, 0xFB60, 0xFB61, // ARABIC LETTER TTEHEH
+        0x067B, 'D', 0xFB53, 0xFB54, 0xFB55, // ARABIC LETTER BEEH
+        0x067E, 'D', 0xFB57, 0xFB58, 0xFB59, // ARABIC LETTER PEH
+        0x067F, 'D', 0xFB63, 0xFB64, 0xFB65, // ARABIC LETTER TEHEH
+        0x0680, 'D', 0xFB5B, 0xFB5C, 0xFB5D, // ARABIC LETTER BEHEH
+        0x0683, 'D', 0xFB77, 0xFB78, 0xFB79, // ARABIC LETTER NYEH
+        0x0684, 'D', 0xFB73, 0xFB74, 0xFB75, // ARABIC LETTER DYEH
+        0x0686, 'D', 0xFB7B, 0xFB7C, 0xFB7D, // ARABIC LETTER TCHEH
+        0x0687, 'D', 0xFB7F, 0xFB80, 0xFB81, // ARABIC LETTER TCHEHEH
+        0x0688, 'R', 0xFB89, 0, 0, // ARABIC LETTER DDAL
+        0x068C, 'R', 0xFB85, 0, 0, // ARABIC LETTER DAHAL
+        0x068D, 'R', 0xFB83, 0, 0, // ARABIC LETTER DDAHAL
+        0x068E, 'R', 0xFB87, 0, 0, // ARABIC LETTER DUL
+        0x0691, 'R', 0xFB8D, 0, 0, // ARABIC LETTER RREH
+        0x0698, 'R', 0xFB8B, 0, 0, // ARABIC LETTER JEH
+        0x06A4, 'D', 0xFB6B, 0xFB6C, 0xFB6D, // ARABIC LETTER VEH
+        0x06A6, 'D', 0xFB6F, 0xFB70, 0xFB71, // ARABIC LETTER PEHEH
+        0x06A9, 'D', 0xFB8F, 0xFB90, 0xFB91, // ARABIC LETTER KEHEH
+        0x06AD, 'D', 0xFBD4, 0xFBD5, 0xFBD6, // ARABIC LETTER NG
+        0x06AF, 'D', 0xFB93, 0xFB94, 0xFB95, // ARABIC LETTER GAF
+        0x06B1, 'D', 0xFB9B, 0xFB9C, 0xFB9D, // ARABIC LETTER NGOEH
+        0x06B3, 'D', 0xFB97, 0xFB98, 0xFB99, // ARABIC LETTER GUEH
+        0x06BA, 'R', 0xFB9F, 0, 0, // ARABIC LETTER NOON GHUNNA
+        0x06BB, 'D', 0xFBA1, 0xFBA2, 0xFBA3, // ARABIC LETTER RNOON
+        0x06BE, 'D', 0xFBAB, 0xFBAC, 0xFBAD, // ARABIC LETTER HEH DOACHASHMEE
+        0x06C0, 'R', 0xFBA5, 0, 0, // ARABIC LETTER HEH WITH YEH ABOVE
+        0x06C1, 'D', 0xFBA7, 0xFBA8, 0xFBA9, // ARABIC LETTER HEH GOAL
+        0x06C5, 'R', 0xFBE1, 0, 0, // ARABIC LETTER KIRGHIZ OE
+        0x06C6, 'R', 0xFBDA, 0, 0, // ARABIC LETTER OE
+        0x06C7, 'R', 0xFBD8, 0, 0, // ARABIC LETTER U
+        0x06C8, 'R', 0xFBDC, 0, 0, // ARABIC LETTER YU
+        0x06C9, 'R', 0xFBE3, 0, 0, // ARABIC LETTER KIRGHIZ YU
+        0x06CB, 'R', 0xFBDF, 0, 0, // ARABIC LETTER VE
+        0x06CC, 'D', 0xFBFD, 0xFBFE, 0xFBFF, // ARABIC LETTER FARSI YEH
+        0x06D0, 'D', 0xFBE5, 0xFBE6, 0xFBE7, // ARABIC LETTER E
+        0x06D2, 'R', 0xFBAF, 0, 0, // ARABIC LETTER YEH BARREE
+        0x06D3, 'R', 0xFBB1, 0, 0, // ARABIC LETTER YEH BARREE WITH HAMZA ABOVE
+        0x06D6, 'T', 0, 0, 0, // ARABIC SMALL HIGH LIGATURE SAD WITH LAM WITH ALEF MAKSURA
+        0x06D7, 'T', 0, 0, 0, // ARABIC SMALL HIGH LIGATURE QAF WITH LAM WITH ALEF MAKSURA
+        0x06D8, 'T', 0, 0, 0, // ARABIC SMALL HIGH MEEM INITIAL FORM
+        0x06D9, 'T', 0, 0, 0, // ARABIC SMALL HIGH LAM ALEF
+        0x06DA, 'T', 0, 0, 0, // ARABIC SMALL HIGH JEEM
+        0x06DB, 'T', 0, 0, 0, // ARABIC SMALL HIGH THREE DOTS
+        0x06DC, 'T', 0, 0, 0, // ARABIC SMALL HIGH SEEN
+        0x06DF, 'T', 0, 0, 0, // ARABIC SMALL HIGH ROUNDED ZERO
+        0x06E0, 'T', 0, 0, 0, // ARABIC SMALL HIGH UPRIGHT RECTANGULAR ZERO
+        0x06E1, 'T', 0, 0, 0, // ARABIC SMALL HIGH DOTLESS HEAD OF KHAH
+        0x06E2, 'T', 0, 0, 0, // ARABIC SMALL HIGH MEEM ISOLATED FORM
+        0x06E3, 'T', 0, 0, 0, // ARABIC SMALL LOW SEEN
+        0x06E4, 'T', 0, 0, 0, // ARABIC SMALL HIGH MADDA
+        0x06E7, 'T', 0, 0, 0, // ARABIC SMALL HIGH YEH
+        0x06E8, 'T', 0, 0, 0, // ARABIC SMALL HIGH NOON
+        0x06EA, 'T', 0, 0, 0, // ARABIC EMPTY CENTRE LOW STOP
+        0x06EB, 'T', 0, 0, 0, // ARABIC EMPTY CENTRE HIGH STOP
+        0x06EC, 'T', 0, 0, 0, // ARABIC ROUNDED HIGH STOP WITH FILLED CENTRE
+        0x06ED, 'T', 0, 0, 0, // ARABIC SMALL LOW MEEM
+        0x0883, 'C', 0, 0, 0, // ARABIC TATWEEL WITH OVERSTRUCK HAMZA
+        0x0884, 'C', 0, 0, 0, // ARABIC TATWEEL WITH OVERSTRUCK WAW
+        0x0885, 'C', 0, 0, 0, // ARABIC TATWEEL WITH TWO DOTS BELOW
+        0x0898, 'T', 0, 0, 0, // ARABIC SMALL HIGH WORD AL-JUZ
+        0x0899, 'T', 0, 0, 0, // ARABIC SMALL LOW WORD ISHMAAM
+        0x089A, 'T', 0, 0, 0, // ARABIC SMALL LOW WORD IMAALA
+        0x089B, 'T', 0, 0, 0, // ARABIC SMALL LOW WORD TASHEEL
+        0x089C, 'T', 0, 0, 0, // ARABIC MADDA WAAJIB
+        0x089D, 'T', 0, 0, 0, // ARABIC SUPERSCRIPT ALEF MOKHASSAS
+        0x089E, 'T', 0, 0, 0, // ARABIC DOUBLED MADDA
+        0x089F, 'T', 0, 0, 0, // ARABIC HALF MADDA OVER MADDA
+        0x08CA, 'T', 0, 0, 0, // ARABIC SMALL HIGH FARSI YEH
+        0x08CB, 'T', 0, 0, 0, // ARABIC SMALL HIGH YEH BARREE WITH TWO DOTS BELOW
+        0x08CC, 'T', 0, 0, 0, // ARABIC SMALL HIGH WORD SAH
+        0x08CD, 'T', 0, 0, 0, // ARABIC SMALL HIGH ZAH
+        0x08CE, 'T', 0, 0, 0, // ARABIC LARGE ROUND DOT ABOVE
+        0x08CF, 'T', 0, 0, 0, // ARABIC LARGE ROUND DOT BELOW
+        0x08D0, 'T', 0, 0, 0, // ARABIC SUKUN BELOW
+        0x08D1, 'T', 0, 0, 0, // ARABIC LARGE CIRCLE BELOW
+        0x08D2, 'T', 0, 0, 0, // ARABIC LARGE ROUND DOT INSIDE CIRCLE BELOW
+        0x08D3, 'T', 0, 0, 0, // ARABIC SMALL LOW WAW
+        0x08D4, 'T', 0, 0, 0, // ARABIC SMALL HIGH WORD AR-RUB
+        0x08D5, 'T', 0, 0, 0, // ARABIC SMALL HIGH SAD
+        0x08D6, 'T', 0, 0, 0, // ARABIC SMALL HIGH AIN
+        0x08D7, 'T', 0, 0, 0, // ARABIC SMALL HIGH QAF
+        0x08D8, 'T', 0, 0, 0, // ARABIC SMALL HIGH NOON WITH KASRA
+        0x08D9, 'T', 0, 0, 0, // ARABIC SMALL LOW NOON WITH KASRA
+        0x08DA, 'T', 0, 0, 0, // ARABIC SMALL HIGH WORD ATH-THALATHA
+        0x08DB, 'T', 0, 0, 0, // ARABIC SMALL HIGH WORD AS-SAJDA
+        0x08DC, 'T', 0, 0, 0, // ARABIC SMALL HIGH WORD AN-NISF
+        0x08DD, 'T', 0, 0, 0, // ARABIC SMALL HIGH WORD SAKTA
+        0x08DE, 'T', 0, 0, 0, // ARABIC SMALL HIGH WORD QIF
+        0x08DF, 'T', 0, 0, 0, // ARABIC SMALL HIGH WORD WAQFA
+        0x08E0, 'T', 0, 0, 0, // ARABIC SMALL HIGH FOOTNOTE MARKER
+        0x08E1, 'T', 0, 0, 0, // ARABIC SMALL HIGH SIGN SAFHA
+        0x08E3, 'T', 0, 0, 0, // ARABIC TURNED DAMMA BELOW
+        0x08E4, 'T', 0, 0, 0, // ARABIC CURLY FATHA
+        0x08E5, 'T', 0, 0, 0, // ARABIC CURLY DAMMA
+        0x08E6, 'T', 0, 0, 0, // ARABIC CURLY KASRA
+        0x08E7, 'T', 0, 0, 0, // ARABIC CURLY FATHATAN
+        0x08E8, 'T', 0, 0, 0, // ARABIC CURLY DAMMATAN
+        0x08E9, 'T', 0, 0, 0, // ARABIC CURLY KASRATAN
+        0x08EA, 'T', 0, 0, 0, // ARABIC TONE ONE DOT ABOVE
+        0x08EB, 'T', 0, 0, 0, // ARABIC TONE TWO DOTS ABOVE
+        0x08EC, 'T', 0, 0, 0, // ARABIC TONE LOOP ABOVE
+        0x08ED, 'T', 0, 0, 0, // ARABIC TONE ONE DOT BELOW
+        0x08EE, 'T', 0, 0, 0, // ARABIC TONE TWO DOTS BELOW
+        0x08EF, 'T', 0, 0, 0, // ARABIC TONE LOOP BELOW
+        0x08F0, 'T', 0, 0, 0, // ARABIC OPEN FATHATAN
+        0x08F1, 'T', 0, 0, 0, // ARABIC OPEN DAMMATAN
+        0x08F2, 'T', 0, 0, 0, // ARABIC OPEN KASRATAN
+        0x08F3, 'T', 0, 0, 0, // ARABIC SMALL HIGH WAW
+        0x08F4, 'T', 0, 0, 0, // ARABIC FATHA WITH RING
+        0x08F5, 'T', 0, 0, 0, // ARABIC FATHA WITH DOT ABOVE
+        0x08F6, 'T', 0, 0, 0, // ARABIC KASRA WITH DOT BELOW
+        0x08F7, 'T', 0, 0, 0, // ARABIC LEFT ARROWHEAD ABOVE
+        0x08F8, 'T', 0, 0, 0, // ARABIC RIGHT ARROWHEAD ABOVE
+        0x08F9, 'T', 0, 0, 0, // ARABIC LEFT ARROWHEAD BELOW
+        0x08FA, 'T', 0, 0, 0, // ARABIC RIGHT ARROWHEAD BELOW
+        0x08FB, 'T', 0, 0, 0, // ARABIC DOUBLE RIGHT ARROWHEAD ABOVE
+        0x08FC, 'T', 0, 0, 0, // ARABIC DOUBLE RIGHT ARROWHEAD ABOVE WITH DOT
+        0x08FD, 'T', 0, 0, 0, // ARABIC RIGHT ARROWHEAD ABOVE WITH DOT
+        0x08FE, 'T', 0, 0, 0, // ARABIC DAMMA WITH DOT
+        0x08FF, 'T', 0, 0, 0, // ARABIC MARK SIDEWAYS NOON GHUNNA
+        0x200D, 'C', 0, 0, 0, // ZERO WIDTH JOINER
+    };
+
+    private ArabicShapingData() {
+    }
+}
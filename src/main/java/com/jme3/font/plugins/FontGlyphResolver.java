@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import com.jme3.font.BitmapCharacter;
+import com.jme3.font.BitmapCharacterSet;
+import com.jme3.font.BitmapFont;
+import com.jme3.font.GlyphParser;
+
+/**
+ * Parses texts straight into the BitmapCharacters of a font, for renderers
+ * that lay out glyphs themselves and would otherwise look every parsed
+ * character up again in the hash map of the BitmapCharacterSet.
+ * <p>
+ * The characters of the ranges parsed text is made of, from ASCII to the
+ * Arabic block and the Arabic presentation forms, are copied into dense
+ * arrays when the resolver is created, so resolving them is one array read. Other
+ * characters are looked up in the character set. Create the resolver once
+ * the font is loaded, and again if its character set changes.
+ * <p>
+ * A resolver may be shared between threads like its parser.
+ *
+ * @author Ali-RS
+ */
+public class FontGlyphResolver {
+
+    /**
+     * The end of the first dense range, which starts at zero and ends with
+     * the Arabic block.
+     */
+    private final static int ARABIC_END = 0x0700;
+    /**
+     * The Arabic Presentation Forms-A and B blocks, the second dense range.
+     */
+    private final static int FIRST_FORM = 0xFB50;
+    private final static int FORMS_END = 0xFF00;
+
+    private final BitmapCharacterSet charSet;
+    private final PersianGlyphParser parser;
+    private final BitmapCharacter[] characters = new BitmapCharacter[ARABIC_END];
+    private final BitmapCharacter[] forms = new BitmapCharacter[FORMS_END - FIRST_FORM];
+
+    /**
+     * Resolves glyphs with the glyph parser of the font if it is a
+     * PersianGlyphParser, or with a new parser otherwise.
+     */
+    public FontGlyphResolver(BitmapFont font) {
+        this(font, getParser(font));
+    }
+
+    public FontGlyphResolver(BitmapFont font, PersianGlyphParser parser) {
+        this.charSet = font.getCharSet();
+        this.parser = parser;
+        for (int c = 0; c < ARABIC_END; c++) {
+            characters[c] = charSet.getCharacter(c);
+        }
+        for (int c = FIRST_FORM; c < FORMS_END; c++) {
+            forms[c - FIRST_FORM] = charSet.getCharacter(c);
+        }
+    }
+
+    private static PersianGlyphParser getParser(BitmapFont font) {
+        GlyphParser parser = font.getGlyphParser();
+        return parser instanceof PersianGlyphParser ? (PersianGlyphParser) parser : new PersianGlyphParser();
+    }
+
+    /**
+     * Returns the glyph of the font for a character.
+     *
+     * @return the glyph, or null if the font does not have it
+     */
+    public BitmapCharacter getCharacter(char c) {
+        if (c < ARABIC_END) {
+            return characters[c];
+        }
+        if (c >= FIRST_FORM && c < FORMS_END) {
+            return forms[c - FIRST_FORM];
+        }
+        return charSet.getCharacter(c);
+    }
+
+    /**
+     * Parses the text and writes the glyph of every parsed character into the
+     * given array, null for characters the font does not have. Nothing is
+     * allocated, the text is parsed into the scratch buffer of the thread.
+     *
+     * @param str the text to parse
+     * @param dst the destination, in the order parse() returns the characters
+     * @param offset the index of the first glyph written in dst
+     * @return the number of glyphs written, always the length of the text
+     * @throws IllegalArgumentException if the destination is too small
+     */
+    public int resolve(CharSequence str, BitmapCharacter[] dst, int offset) {
+        int length = str.length();
+        if (offset < 0 || dst.length - offset < length) {
+            throw new IllegalArgumentException("Destination too small for " + length + " glyphs at offset " + offset);
+        }
+        char[] shaped = parser.shapeToScratch(str);
+        for (int i = 0; i < length; i++) {
+            dst[offset + i] = getCharacter(shaped[i]);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Collects the characters parse() produces for a corpus of texts, like the
+ * localization files and chat samples of a game, so bitmap fonts only need
+ * the presentation forms and other glyphs that are actually drawn instead
+ * of every form of every letter.
+ * <p>
+ * The corpus is streamed through {@link PersianGlyphParser#parse(Reader, Writer)},
+ * so files of any size can be used, and only the set of characters is kept.
+ * The set is written as the chars lines of an AngelCode BMFont configuration
+ * (.bmfc) and can be checked against an existing text .fnt file:
+ * <pre>
+ * java com.jme3.font.plugins.GlyphSetExtractor chars.bmfc Messages_fa.properties chat.txt -fnt Persian.fnt
+ * </pre>
+ * Properties files are read as their values, other files as UTF-8 text.
+ * Control and format characters like ZWNJ, which are never drawn, are left
+ * out.
+ *
+ * @author Ali-RS
+ */
+public class GlyphSetExtractor {
+
+    /**
+     * The number of ranges written on each chars line.
+     */
+    private final static int RANGES_PER_LINE = 16;
+
+    private final PersianGlyphParser parser;
+    private final BitSet glyphs = new BitSet();
+    private final Writer sink = new Writer() {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                addGlyph(cbuf[i]);
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    public GlyphSetExtractor() {
+        this(new PersianGlyphParser());
+    }
+
+    /**
+     * @param parser the parser whose glyph tables are used
+     */
+    public GlyphSetExtractor(PersianGlyphParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Adds the glyphs of a parsed text.
+     */
+    public void add(CharSequence text) {
+        CharSequence shaped = parser.parse(text);
+        for (int i = 0, n = shaped.length(); i < n; i++) {
+            addGlyph(shaped.charAt(i));
+        }
+    }
+
+    private void addGlyph(char c) {
+        int type = Character.getType(c);
+        if (type != Character.CONTROL && type != Character.FORMAT) {
+            glyphs.set(c);
+        }
+    }
+
+    /**
+     * Adds the glyphs of all the text of the reader, parsed as one text. The
+     * reader is not closed.
+     *
+     * @throws IOException if reading fails
+     */
+    public void add(Reader in) throws IOException {
+        parser.parse(in, sink);
+    }
+
+    /**
+     * Adds the glyphs of a file, the values of a properties file or the
+     * whole text of any other file, read as UTF-8.
+     *
+     * @throws IOException if reading fails
+     */
+    public void addFile(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (file.getFileName().toString().endsWith(".properties")) {
+                Properties texts = new Properties();
+                texts.load(reader);
+                for (String key : texts.stringPropertyNames()) {
+                    add(texts.getProperty(key));
+                }
+            } else {
+                add(reader);
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the set of glyphs collected so far
+     */
+    public BitSet getGlyphs() {
+        return (BitSet) glyphs.clone();
+    }
+
+    /**
+     * Writes the glyphs as chars lines of a BMFont configuration, like
+     * "chars=32,48-57,1570", which replace the chars lines of the .bmfc file
+     * of the font.
+     *
+     * @throws IOException if writing fails
+     */
+    public void writeCharset(Writer out) throws IOException {
+        out.write("# Characters produced by PersianGlyphParser for the corpus\n");
+        int ranges = 0;
+        for (int start = glyphs.nextSetBit(0); start >= 0; ) {
+            int end = glyphs.nextClearBit(start) - 1;
+            out.write(ranges % RANGES_PER_LINE == 0 ? (ranges == 0 ? "chars=" : "\nchars=") : ",");
+            out.write(start == end ? Integer.toString(start) : start + "-" + end);
+            ranges++;
+            start = glyphs.nextSetBit(end + 1);
+        }
+        if (ranges > 0) {
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Returns the glyphs collected which the font does not have.
+     *
+     * @param fnt a BMFont file in text format
+     * @throws IOException if reading fails
+     */
+    public BitSet getMissingGlyphs(Path fnt) throws IOException {
+        BitSet missing = getGlyphs();
+        missing.andNot(readFontCharacters(fnt));
+        return missing;
+    }
+
+    /**
+     * Reads the ids of the "char" lines of a BMFont file in text format.
+     *
+     * @throws IOException if reading fails
+     */
+    public static BitSet readFontCharacters(Path fnt) throws IOException {
+        BitSet characters = new BitSet();
+        try (BufferedReader reader = Files.newBufferedReader(fnt, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("char ")) {
+                    continue;
+                }
+                for (String token : line.split("\\s+")) {
+                    if (token.startsWith("id=")) {
+                        characters.set(Integer.parseInt(token.substring(3)));
+                        break;
+                    }
+                }
+            }
+        }
+        return characters;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Path fnt = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-fnt") && i + 1 < args.length) {
+                fnt = Paths.get(args[++i]);
+            } else {
+                files.add(Paths.get(args[i]));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: GlyphSetExtractor <charset.bmfc> <corpus file>... [-fnt <font.fnt>]");
+            System.exit(1);
+        }
+
+        GlyphSetExtractor extractor = new GlyphSetExtractor();
+        for (Path file : files) {
+            extractor.addFile(file);
+        }
+        try (Writer out = Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            extractor.writeCharset(out);
+        }
+        System.out.println(extractor.glyphs.cardinality() + " glyphs written to " + args[0]);
+
+        if (fnt != null) {
+            BitSet missing = extractor.getMissingGlyphs(fnt);
+            for (int c = missing.nextSetBit(0); c >= 0; c = missing.nextSetBit(c + 1)) {
+                System.out.println(String.format("Missing U+%04X %s", c, Character.getName(c)));
+            }
+            System.out.println(missing.cardinality() + " glyphs missing from " + fnt);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import java.nio.CharBuffer;
+
+/**
+ * Keeps a text together with its parsed form and updates the parsed form on
+ * every edit by reshaping only the characters the edit can affect, instead of
+ * parsing the whole text again. Meant for text fields, chat boxes and editors
+ * that change their text one keystroke at a time.
+ * <p>
+ * An edit reshapes the range between the nearest right-to-left characters
+ * or line breaks around it, which covers the joining neighbours of the
+ * edited characters and any left-to-right run they belong to. In Persian
+ * text that range is a few characters, so the shaping cost of an edit does
+ * not depend on the length of the text. In mostly left-to-right text it is
+ * the whole run around the edit, up to the whole line. Once the glyph tables
+ * of the parser change, the next edit reshapes the whole text.
+ * <p>
+ * The text and its parsed form are kept in flat arrays, so an edit still
+ * moves every character after it, a plain array copy which does grow with
+ * the length of the text.
+ *
+ * @author Ali-RS
+ */
+public class IncrementalShaper {
+
+    private final PersianGlyphParser parser;
+    private final StringBuilder text = new StringBuilder();
+    private char[] shaped = new char[16];
+    /**
+     * The glyph tables the parsed form was shaped with.
+     */
+    private PersianGlyphs glyphs;
+
+    public IncrementalShaper() {
+        this(new PersianGlyphParser());
+    }
+
+    /**
+     * @param parser the parser whose glyph tables are used
+     */
+    public IncrementalShaper(PersianGlyphParser parser) {
+        this.parser = parser;
+    }
+
+    public IncrementalShaper(PersianGlyphParser parser, CharSequence text) {
+        this(parser);
+        setText(text);
+    }
+
+    /**
+     * Replaces the whole text.
+     */
+    public void setText(CharSequence text) {
+        replace(0, this.text.length(), text);
+    }
+
+    /**
+     * Inserts text at the given index of the text.
+     */
+    public void insert(int index, CharSequence str) {
+        replace(index, index, str);
+    }
+
+    /**
+     * Deletes the characters from start (inclusive) to end (exclusive).
+     */
+    public void delete(int start, int end) {
+        replace(start, end, "");
+    }
+
+    /**
+     * Replaces the characters from start (inclusive) to end (exclusive) with
+     * the given text.
+     *
+     * @throws IndexOutOfBoundsException if the range is not within the text
+     */
+    public void replace(int start, int end, CharSequence str) {
+        int length = text.length();
+        if (start < 0 || start > end || end > length) {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of bounds for length " + length);
+        }
+
+        int inserted = str.length();
+        int newLength = length - (end - start) + inserted;
+        if (shaped.length < newLength) {
+            char[] chars = new char[Math.max(newLength, shaped.length * 2)];
+            System.arraycopy(shaped, 0, chars, 0, start);
+            System.arraycopy(shaped, end, chars, start + inserted, length - end);
+            shaped = chars;
+        } else {
+            System.arraycopy(shaped, end, shaped, start + inserted, length - end);
+        }
+        text.delete(start, end).insert(start, str);
+
+        PersianGlyphs glyphs = parser.getGlyphs();
+        int from;
+        int to;
+        if (glyphs != this.glyphs) {
+            // Every character may take another glyph with the new tables
+            this.glyphs = glyphs;
+            from = 0;
+            to = text.length();
+        } else {
+            // The letters joining to the edited range may be past marks
+            from = findRangeStart(PersianGlyphParser.skipTransparentBackward(glyphs, text, start - 1));
+            to = findRangeEnd(PersianGlyphParser.skipTransparentForward(glyphs, text, start + inserted));
+        }
+        PersianGlyphParser.shape(glyphs, text, from, to, shaped, from, null, null);
+    }
+
+    /**
+     * Returns the index of the nearest character ending a left-to-right run
+     * at or before the given index, or 0 if there is none.
+     */
+    private int findRangeStart(int index) {
+        for (int i = index; i > 0; i--) {
+            if (PersianGlyphParser.endsRun(text.charAt(i))) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the index after the nearest character ending a left-to-right
+     * run at or after the given index, or the length of the text if there is
+     * none.
+     */
+    private int findRangeEnd(int index) {
+        for (int i = index, n = text.length(); i < n; i++) {
+            if (PersianGlyphParser.endsRun(text.charAt(i))) {
+                return i + 1;
+            }
+        }
+        return text.length();
+    }
+
+    /**
+     * @return the length of the text, which is also the length of its parsed form
+     */
+    public int length() {
+        return text.length();
+    }
+
+    /**
+     * @return the text as edited, in logical order
+     */
+    public CharSequence getText() {
+        return text;
+    }
+
+    /**
+     * Returns a read-only view of the parsed text, which is only valid until
+     * the next edit.
+     */
+    public CharSequence getShapedText() {
+        return CharBuffer.wrap(shaped, 0, text.length()).asReadOnlyBuffer();
+    }
+
+    /**
+     * Copies the parsed text into the given array.
+     *
+     * @return the number of characters copied
+     */
+    public int getShapedText(char[] dst, int offset) {
+        int length = text.length();
+        System.arraycopy(shaped, 0, dst, offset, length);
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return new String(shaped, 0, text.length());
+    }
+}
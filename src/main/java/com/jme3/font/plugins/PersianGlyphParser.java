@@ -31,538 +31,1060 @@
  */
 package com.jme3.font.plugins;
 
+import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
 import com.jme3.font.GlyphParser;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
-import java.util.regex.Pattern;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * An implementation of GlyphParser for Persian text.
+ * <p>
+ * A parser is safe to share between threads, so fonts can be loaded and
+ * texts parsed on worker threads while the render thread parses too. The
+ * glyph tables are immutable and shared by all parsers (customizing them
+ * makes a copy for the parser), the scratch buffers are kept per thread and
+ * the cache is split into independently locked segments so threads rarely
+ * wait on each other.
  *
  * @author Ali-RS
  */
 public class PersianGlyphParser implements GlyphParser {
 
     private final static PersianGlyphs GLYPHS = new PersianGlyphs();
-    private final static Pattern UNJOINABLE_COMING_BEFORE = Pattern.compile("[۰-۹رآادذزوژء\\s\\d\\%\\!\\(\\)\\+\\-\\*\\/\\:\\=\\[\\]\\{\\}\\<\\>\\'\\\"\\,\\؛\\؟\\-\\#ء\\.]");
-    private final static Pattern UNJOINABLE_COMING_AFTER = Pattern.compile("[۰-۹ء\\s\\d\\%\\!\\(\\)\\+\\-\\*\\/\\:\\=\\[\\]\\{\\}\\<\\>\\'\\\"\\،\\؛\\؟\\-\\#ء\\.]");
+    /**
+     * Marks a missing neighbour at the start or end of the text.
+     */
+    private final static int NO_CHARACTER = -1;
+    /**
+     * Returned by scan() for texts which need the full shaping pass.
+     */
+    private final static int NEEDS_SHAPING = -2;
+    /**
+     * The number of characters read at once by parse(Reader, Writer).
+     */
+    private final static int STREAM_CHUNK_SIZE = 4096;
+    /**
+     * Must be increased whenever a change of the shaping or reordering rules
+     * changes the output of parse().
+     */
+    private final static int SHAPING_VERSION = 6;
+
+    /**
+     * Reused by parse() when buffer reuse is enabled and by the StringBuilder
+     * and CharBuffer overloads of parseInto(), one set per thread.
+     */
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+    private volatile boolean reuseBuffers = false;
+    private volatile ShapedTextCache cache;
+    private int cacheMaxEntries;
+    private int cacheMaxCharacters;
+    private boolean serializeCache = false;
+    private volatile ShapingMetrics metrics;
+    /**
+     * The glyph and joining tables, the shared default ones unless customized.
+     */
+    private volatile PersianGlyphs glyphs = GLYPHS;
 
     public PersianGlyphParser() {
     }
 
-    @Override
-    public CharSequence parse(CharSequence str) {
-        if (str.length() <= 1) {
-            return str;
-        }
-        
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0, j = 0, n = str.length(); i < n; i++) {
-            char c = str.charAt(i);
-            // Numbers require special treatment. Unlike the text they are read from left-to-right
-            // so we need to reverse them.
-            if (Character.isDigit(c)) {
-                sb.insert(j, c); // append in "reverse" mode
-                continue;
-            } else {
-                j = i + 1;  // store the last position of a non-digit
-            }
+    /**
+     * When enabled, {@link #parse(CharSequence)} writes into a buffer owned by
+     * this parser and returns it, so steady-state parsing allocates nothing.
+     * Each thread gets its own buffer and the returned sequence is only valid
+     * until the next call to parse() on the same thread.
+     *
+     * @param reuseBuffers true to reuse the parse result buffer (default=false)
+     */
+    public void setReuseBuffers(boolean reuseBuffers) {
+        this.reuseBuffers = reuseBuffers;
+    }
 
-            switch (c) {
-                case 'آ':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(0)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(0)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(0)[0]);
-                    }
-                    break;
-
-                case 'ا':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(1)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(1)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(1)[0]);
-                    }
+    /**
+     * @return true if parse() reuses its result buffer
+     */
+    public boolean isReuseBuffers() {
+        return reuseBuffers;
+    }
 
-                    break;
+    /**
+     * Enables a least recently used cache of parsed texts, so texts which are
+     * parsed again (like menu entries, tooltips or labels updated every frame)
+     * are only shaped once. While the cache is enabled parse() returns
+     * immutable Strings and ignores {@link #setReuseBuffers(boolean)}.
+     * <p>
+     * Caches of more than 128 entries are split into up to 16 segments for
+     * threads parsing at once, each with an equal share of the entries and
+     * its own least recently used order, so hot texts of a crowded segment
+     * may be evicted a little early. Texts longer than half of maxCharacters
+     * are never cached.
+     *
+     * @param maxEntries the maximum number of cached texts, or 0 to disable
+     * the cache (default=0)
+     * @param maxCharacters the maximum total length of the cached texts, each
+     * text counted once for its original and once for its parsed form
+     */
+    public synchronized void setCacheLimits(int maxEntries, int maxCharacters) {
+        if (maxEntries < 0 || maxCharacters < 0) {
+            throw new IllegalArgumentException("Cache limits must not be negative");
+        }
+        cacheMaxEntries = maxEntries;
+        cacheMaxCharacters = maxCharacters;
+        cache = maxEntries == 0 ? null : new ShapedTextCache(maxEntries, maxCharacters, glyphs);
+    }
 
-                case 'ب':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(2)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(2)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(2)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
-                    break;
-
-                case 'پ':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(3)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(3)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(3)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
-                    break;
-
-                case 'ت':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(4)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(4)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(4)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * When enabled, {@link #write(JmeExporter)} also saves the cached texts, so
+     * a font loaded from a j3o asset comes with an already warm cache.
+     *
+     * @param serializeCache true to save the cached texts (default=false)
+     */
+    public void setSerializeCache(boolean serializeCache) {
+        this.serializeCache = serializeCache;
+    }
 
-                    break;
+    /**
+     * @return true if the cached texts are saved with the parser
+     */
+    public boolean isSerializeCache() {
+        return serializeCache;
+    }
 
-                case 'ث':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(5)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(5)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(5)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Sets the metrics parse() calls are recorded in, which may be shared by
+     * several parsers.
+     *
+     * @param metrics the metrics, or null to disable them (default=null)
+     */
+    public void setMetrics(ShapingMetrics metrics) {
+        this.metrics = metrics;
+    }
 
-                    break;
+    /**
+     * @return the metrics parse() calls are recorded in, or null
+     */
+    public ShapingMetrics getMetrics() {
+        return metrics;
+    }
 
-                case 'ج':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(6)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(6)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(6)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Adds or replaces the glyph shapes of a letter, for letters the parser
+     * does not know or for fonts which map them to other glyphs. The cache is
+     * cleared.
+     *
+     * @param letter the letter
+     * @param isolated the glyph of the letter not connected
+     * @param end the glyph of the letter joined on the right (Final)
+     * @param initial the glyph of the letter joined on the left (Initial)
+     * @param medial the glyph of the letter joined on both sides (Medial)
+     */
+    public synchronized void setGlyphShapes(char letter, char isolated, char end, char initial, char medial) {
+        setGlyphs(glyphs.withGlyph(letter, new char[]{isolated, end, initial, medial}));
+    }
 
-                    break;
+    /**
+     * Sets which neighbouring letters join to a character, which is no longer
+     * transparent. The cache is cleared.
+     *
+     * @param c the character
+     * @param joinsFollowing true if a letter coming after the character joins to it
+     * @param joinsPreceding true if a letter coming before the character joins to it
+     */
+    public synchronized void setJoining(char c, boolean joinsFollowing, boolean joinsPreceding) {
+        int unjoinable = (joinsFollowing ? 0 : PersianGlyphs.UNJOINABLE_BEFORE)
+                | (joinsPreceding ? 0 : PersianGlyphs.UNJOINABLE_AFTER);
+        setGlyphs(glyphs.withJoining(c, unjoinable));
+    }
 
-                case 'چ':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(7)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(7)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(7)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Makes a character transparent, like the marks the parser knows: letters
+     * around it join to each other as if it was not there. The cache is
+     * cleared.
+     *
+     * @param c the character
+     */
+    public synchronized void setTransparent(char c) {
+        setGlyphs(glyphs.withJoining(c, PersianGlyphs.TRANSPARENT));
+    }
 
-                    break;
+    /**
+     * Replaces the glyph tables together with the cache, by an empty one
+     * tied to the new tables. A thread still parsing with the old tables
+     * puts its text in the old cache, which is no longer read.
+     */
+    private void setGlyphs(PersianGlyphs glyphs) {
+        this.glyphs = glyphs;
+        ShapedTextCache cache = this.cache;
+        if (cache != null) {
+            this.cache = cache.withGlyphs(glyphs);
+        }
+    }
 
-                case 'ح':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(8)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(8)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(8)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Returns a stamp of the glyph tables and the shaping rules of this
+     * parser, texts parsed with a different stamp may be parsed differently
+     * now. Used to detect stale pre-parsed texts, like the ones of a
+     * {@link ShapedBundle}.
+     */
+    public long getTablesVersion() {
+        return ((long) SHAPING_VERSION << 32) | glyphs.getChecksum();
+    }
 
-                    break;
+    /**
+     * Discards all cached texts, the hit and miss counts are kept.
+     */
+    public void clearCache() {
+        ShapedTextCache cache = this.cache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
 
-                case 'خ':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(9)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(9)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(9)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * @return the number of parse() calls answered from the cache
+     */
+    public long getCacheHits() {
+        ShapedTextCache cache = this.cache;
+        return cache == null ? 0 : cache.getHits();
+    }
 
-                    break;
+    /**
+     * @return the number of parse() calls which had to shape their text while
+     * the cache was enabled
+     */
+    public long getCacheMisses() {
+        ShapedTextCache cache = this.cache;
+        return cache == null ? 0 : cache.getMisses();
+    }
 
-                case 'د':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(10)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(10)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(10)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * @return the number of texts evicted from the cache to make room for
+     * others
+     */
+    public long getCacheEvictions() {
+        ShapedTextCache cache = this.cache;
+        return cache == null ? 0 : cache.getEvictions();
+    }
 
-                    break;
+    @Override
+    public CharSequence parse(CharSequence str) {
+        return parse(str, reuseBuffers);
+    }
 
-                case 'ذ':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(11)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(11)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(11)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    private CharSequence parse(CharSequence str, boolean reuseBuffers) {
+        ShapingMetrics metrics = this.metrics;
+        long start = metrics != null && metrics.sample() ? System.nanoTime() : 0;
+
+        // The cache is read before the tables and its texts are shaped with
+        // the tables it belongs to, so it never holds texts of other tables
+        ShapedTextCache cache = this.cache;
+        PersianGlyphs glyphs = cache == null ? this.glyphs : cache.getGlyphs();
+        int length = str.length();
+        int runStart = length <= 1 ? NO_CHARACTER : scan(glyphs, str);
+        if (runStart != NEEDS_SHAPING && (runStart == NO_CHARACTER || findRunEnd(str) - runStart <= 1)) {
+            // Nothing to shape or reorder: no letters to shape, no
+            // right-to-left characters and at most one left-to-right one
+            return record(metrics, start, length, ShapingListener.Outcome.FastPath, str);
+        }
 
-                    break;
+        if (cache != null) {
+            String text = str.toString();
+            String shaped = cache.get(text);
+            if (shaped != null) {
+                return record(metrics, start, length, ShapingListener.Outcome.CacheHit, shaped);
+            }
+            char[] chars = new char[length];
+            shape(glyphs, text, runStart, chars, 0);
+            shaped = new String(chars);
+            int evicted = cache.put(text, shaped);
+            if (metrics != null && evicted > 0) {
+                metrics.recordEvictions(evicted);
+            }
+            return record(metrics, start, length, ShapingListener.Outcome.CacheMiss, shaped);
+        }
 
-                case 'ر':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(12)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(12)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(12)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+        if (!reuseBuffers) {
+            char[] chars = new char[length];
+            shape(glyphs, str, runStart, chars, 0);
+            return record(metrics, start, length, ShapingListener.Outcome.Shaped, new String(chars));
+        }
 
-                    break;
+        Buffers b = buffers.get();
+        char[] scratch = b.getScratch(length);
+        shape(glyphs, str, runStart, scratch, 0);
+        b.result.setLength(0);
+        b.result.append(scratch, 0, length);
+        return record(metrics, start, length, ShapingListener.Outcome.Shaped, b.result);
+    }
 
-                case 'ز':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(13)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(13)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(13)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Records a parse() call in the metrics, if any, and returns its result.
+     *
+     * @param start the System.nanoTime() the call started at, or 0 if the
+     * call is not sampled
+     */
+    private static CharSequence record(ShapingMetrics metrics, long start, int length,
+            ShapingListener.Outcome outcome, CharSequence result) {
+        if (metrics != null) {
+            metrics.record(length, outcome, start == 0 ? -1 : System.nanoTime() - start);
+        }
+        return result;
+    }
 
-                    break;
+    /**
+     * Parses all the texts in parallel on the common fork-join pool.
+     *
+     * @see #parseAll(List, ForkJoinPool)
+     */
+    public List<CharSequence> parseAll(List<? extends CharSequence> texts) {
+        return parseAll(texts, ForkJoinPool.commonPool());
+    }
 
-                case 'ژ':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(14)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(14)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(14)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Parses all the texts in parallel on the given pool, for example a whole
+     * localization table at startup. The parallelism is the one of the pool.
+     * The results are never reused buffers, even when buffer reuse is enabled,
+     * and they go through the cache when it is enabled so it is warm afterwards.
+     *
+     * @param texts the texts to parse
+     * @param pool the pool to run on
+     * @return the parsed texts, in the order of the given texts
+     */
+    public List<CharSequence> parseAll(List<? extends CharSequence> texts, ForkJoinPool pool) {
+        CharSequence[] results = texts.toArray(new CharSequence[0]);
+        pool.invoke(new ParseTask(results, 0, results.length));
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Parses all the values of the map in parallel on the given pool.
+     *
+     * @param texts the texts to parse, by key
+     * @param pool the pool to run on
+     * @return the parsed texts by key, in the iteration order of the given map
+     * @see #parseAll(List, ForkJoinPool)
+     */
+    public <K> Map<K, CharSequence> parseAll(Map<K, ? extends CharSequence> texts, ForkJoinPool pool) {
+        List<CharSequence> results = parseAll(new ArrayList<>(texts.values()), pool);
+        Map<K, CharSequence> map = new LinkedHashMap<>(texts.size() * 4 / 3 + 1);
+        int i = 0;
+        for (K key : texts.keySet()) {
+            map.put(key, results.get(i++));
+        }
+        return map;
+    }
 
-                    break;
+    /**
+     * Parses a range of texts in place, splitting it in halves until it is
+     * small enough to parse on one thread.
+     */
+    private class ParseTask extends RecursiveAction {
 
-                case 'س':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(15)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(15)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(15)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+        private final static long serialVersionUID = 1L;
+        private final static int BATCH_SIZE = 256;
 
-                    break;
+        private final CharSequence[] texts;
+        private final int start;
+        private final int end;
 
-                case 'ش':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(16)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(16)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(16)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+        ParseTask(CharSequence[] texts, int start, int end) {
+            this.texts = texts;
+            this.start = start;
+            this.end = end;
+        }
 
-                    break;
+        @Override
+        protected void compute() {
+            if (end - start <= BATCH_SIZE) {
+                for (int i = start; i < end; i++) {
+                    texts[i] = parse(texts[i], false);
+                }
+            } else {
+                int middle = (start + end) >>> 1;
+                invokeAll(new ParseTask(texts, start, middle), new ParseTask(texts, middle, end));
+            }
+        }
+    }
 
-                case 'ص':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(17)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(17)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(17)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Parses the text into the given array, starting at index 0.
+     *
+     * @param str the text to parse
+     * @param dst the destination, at least as long as the text
+     * @return the number of characters written, always the length of the text
+     * @throws IllegalArgumentException if the destination is too small
+     */
+    public int parseInto(CharSequence str, char[] dst) {
+        return parseInto(str, dst, 0);
+    }
 
-                    break;
+    /**
+     * Parses the text into the given array, starting at the given offset.
+     *
+     * @param str the text to parse
+     * @param dst the destination
+     * @param offset the index of the first character written in dst
+     * @return the number of characters written, always the length of the text
+     * @throws IllegalArgumentException if the destination is too small
+     */
+    public int parseInto(CharSequence str, char[] dst, int offset) {
+        int length = str.length();
+        if (offset < 0 || dst.length - offset < length) {
+            throw new IllegalArgumentException("Destination too small for " + length + " characters at offset " + offset);
+        }
+        shape(glyphs, str, dst, offset);
+        return length;
+    }
 
-                case 'ض':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(18)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(18)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(18)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Parses the text into the given buffer at its current position, the
+     * position is advanced past the written characters.
+     *
+     * @param str the text to parse
+     * @param dst the destination
+     * @return the number of characters written, always the length of the text
+     * @throws java.nio.BufferOverflowException if the buffer has not enough room
+     */
+    public int parseInto(CharSequence str, CharBuffer dst) {
+        int length = str.length();
+        if (dst.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        if (dst.hasArray()) {
+            shape(glyphs, str, dst.array(), dst.arrayOffset() + dst.position());
+            dst.position(dst.position() + length);
+        } else {
+            dst.put(shapeToScratch(str), 0, length);
+        }
+        return length;
+    }
 
-                    break;
-                case 'ط':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(19)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(19)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(19)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Parses the text and appends it to the given builder.
+     *
+     * @param str the text to parse
+     * @param dst the destination
+     * @return the number of characters appended, always the length of the text
+     */
+    public int parseInto(CharSequence str, StringBuilder dst) {
+        int length = str.length();
+        dst.append(shapeToScratch(str), 0, length);
+        return length;
+    }
 
-                    break;
-                case 'ظ':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(20)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(20)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(20)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Returns a view of the parsed text which shapes characters as they are
+     * read instead of copying the whole text. Only the left-to-right runs
+     * are found up front, so reading the first line of a long text or the
+     * first characters of a truncated label only costs what is read.
+     * <p>
+     * The view reads the text on every call, so the text must not change
+     * while the view is used, and it uses the glyph tables of the parser at
+     * the time of the call. Like parse(), texts with nothing to shape or
+     * reorder and single characters are returned as is.
+     *
+     * @param str the text to parse
+     * @return a view of the parsed text
+     */
+    public CharSequence parseView(CharSequence str) {
+        PersianGlyphs glyphs = this.glyphs;
+        int length = str.length();
+        int runStart = length <= 1 ? NO_CHARACTER : scan(glyphs, str);
+        if (runStart != NEEDS_SHAPING && (runStart == NO_CHARACTER || findRunEnd(str) - runStart <= 1)) {
+            return str;
+        }
+        return new ShapedTextView(str, glyphs);
+    }
 
-                    break;
+    /**
+     * Parses the text together with the maps between the indices of its
+     * characters and of their glyphs in the parsed text, for caret
+     * positioning and hit-testing.
+     *
+     * @param str the text to parse
+     * @return the parsed text and its index maps
+     */
+    public ShapedText parseWithIndexMaps(CharSequence str) {
+        return parseWithIndexMaps(str, new ShapedText());
+    }
 
-                case 'ع':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(21)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(21)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(21)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Parses the text together with the maps between the indices of its
+     * characters and of their glyphs in the parsed text into an existing
+     * result, to parse on every edit or mouse move without allocating.
+     *
+     * @param str the text to parse
+     * @param result the result to fill
+     * @return the result
+     */
+    public ShapedText parseWithIndexMaps(CharSequence str, ShapedText result) {
+        int length = str.length();
+        result.setLength(length);
+        char[] shaped = result.getShapedArray();
+        int[] logicalToVisual = result.getLogicalToVisualArray();
+        int[] visualToLogical = result.getVisualToLogicalArray();
+        shape(glyphs, str, 0, length, shaped, 0, logicalToVisual, visualToLogical);
+        return result;
+    }
 
-                    break;
+    /**
+     * Turns a parsed text back into the text it was parsed from, for the
+     * clipboard, search or sending it over the network, so only the parsed
+     * form needs to be kept.
+     *
+     * @param shaped a text returned by parse()
+     * @return the text in logical order, without presentation forms
+     * @see #unshapeInto(CharSequence, char[], int)
+     */
+    public String unshape(CharSequence shaped) {
+        char[] chars = new char[shaped.length()];
+        unshapeInto(shaped, chars, 0);
+        return new String(chars);
+    }
 
-                case 'غ':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(22)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(22)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(22)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Turns a parsed text back into the text it was parsed from, into the
+     * given array. Glyphs are mapped back to their letters through a reverse
+     * table of the glyph tables and left-to-right runs are reversed again,
+     * which restores the text exactly as long as the glyphs of the tables are
+     * right-to-left characters, like all the presentation forms are.
+     *
+     * @param shaped a text returned by parse()
+     * @param dst the destination
+     * @param offset the index of the first character written in dst
+     * @return the number of characters written, always the length of the text
+     * @throws IllegalArgumentException if the destination is too small
+     */
+    public int unshapeInto(CharSequence shaped, char[] dst, int offset) {
+        int length = shaped.length();
+        if (offset < 0 || dst.length - offset < length) {
+            throw new IllegalArgumentException("Destination too small for " + length + " characters at offset " + offset);
+        }
+        PersianGlyphs glyphs = this.glyphs;
+        int runStart = NO_CHARACTER;
+        int runEnd = 0;
+        for (int i = 0, j = offset; i < length; i++, j++) {
+            char c = shaped.charAt(i);
+            dst[j] = glyphs.getLetter(c);
+
+            if (isLeftToRight(c)) {
+                if (runStart == NO_CHARACTER) {
+                    runStart = j;
+                }
+                runEnd = j + 1;
+            } else if (runEnd == j && runStart != NO_CHARACTER && extendsCluster(c)) {
+                runEnd = j + 1;
+            } else if (runStart != NO_CHARACTER && endsRun(c)) {
+                reverseRun(dst, runStart, runEnd, null, null);
+                runStart = NO_CHARACTER;
+            }
+        }
+        if (runStart != NO_CHARACTER) {
+            reverseRun(dst, runStart, runEnd, null, null);
+        }
+        return length;
+    }
 
-                    break;
-                case 'ف':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(23)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(23)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(23)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Parses all the text of the reader and writes it to the writer, reading
+     * in chunks so that texts of any size (like books, logs or credits) can
+     * be parsed without holding them in memory. The output is the same as
+     * parse() of the whole text.
+     * <p>
+     * The text is written up to the last character of each chunk which ends
+     * a left-to-right run (see {@link #endsRun(char)}) and is followed by a
+     * character that is not transparent, the rest is kept for the next chunk
+     * together with the characters back to the last one that is not
+     * transparent, so letters are shaped from their real neighbours and
+     * left-to-right runs are reversed as a whole. The memory used is bounded
+     * by the chunk size plus the longest left-to-right run. Neither stream is
+     * closed.
+     *
+     * @param in the text to parse
+     * @param out the destination of the parsed text
+     * @return the number of characters written
+     * @throws IOException if reading or writing fails
+     */
+    public long parse(Reader in, Writer out) throws IOException {
+        PersianGlyphs glyphs = this.glyphs;
+        char[] buf = new char[STREAM_CHUNK_SIZE];
+        char[] shaped = new char[STREAM_CHUNK_SIZE];
+        int length = 0;
+        // Index of the first character not written yet, once some text is
+        // written the characters before it back to the last one which is
+        // not transparent stay in the buffer as look-behind.
+        int start = 0;
+        long total = 0;
+
+        while (true) {
+            if (length == buf.length) {
+                // No right-to-left character in the whole buffer, this is
+                // a long left-to-right run
+                buf = Arrays.copyOf(buf, buf.length * 2);
+                shaped = new char[buf.length];
+            }
+            int read = in.read(buf, length, buf.length - length);
+            int end;
+            if (read < 0) {
+                end = length;
+            } else {
+                length += read;
+                total += read;
+                CharBuffer text = CharBuffer.wrap(buf, 0, length);
+                int lastJoining = Math.max(start, skipTransparentBackward(glyphs, text, length - 1));
+                end = findLastRunEnd(buf, start, lastJoining) + 1;
+            }
 
-                    break;
+            if (end > start) {
+                shape(glyphs, CharBuffer.wrap(buf, 0, length), start, end, shaped, 0, null, null);
+                out.write(shaped, 0, end - start);
 
-                case 'ق':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(24)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(24)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(24)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+                int keep = Math.max(0, skipTransparentBackward(glyphs, CharBuffer.wrap(buf, 0, length), end - 1));
+                System.arraycopy(buf, keep, buf, 0, length - keep);
+                length -= keep;
+                start = end - keep;
+            }
+            if (read < 0) {
+                return total;
+            }
+        }
+    }
 
-                    break;
+    /**
+     * Returns the index of the last character ending a left-to-right run in
+     * the range, or start - 1 if there is none.
+     */
+    private static int findLastRunEnd(char[] chars, int start, int end) {
+        int i = end - 1;
+        while (i >= start && !endsRun(chars[i])) {
+            i--;
+        }
+        return i;
+    }
 
-                case 'ک':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(25)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(25)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(25)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Parses the text into the scratch buffer of the calling thread, which is
+     * only valid until the next call on that thread.
+     */
+    char[] shapeToScratch(CharSequence str) {
+        char[] scratch = buffers.get().getScratch(str.length());
+        shape(glyphs, str, scratch, 0);
+        return scratch;
+    }
 
-                    break;
+    private static void shape(PersianGlyphs glyphs, CharSequence str, char[] dst, int offset) {
+        shape(glyphs, str, str.length() <= 1 ? NO_CHARACTER : scan(glyphs, str), dst, offset);
+    }
 
-                case 'گ':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(26)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(26)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(26)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Parses the whole text given the result of
+     * {@link #scan(PersianGlyphs, CharSequence)}.
+     * Texts without letters to shape and without right-to-left characters are
+     * copied with their only left-to-right run reversed, which skips the glyph
+     * lookups for English labels, counters and other digit-only texts.
+     */
+    private static void shape(PersianGlyphs glyphs, CharSequence str, int runStart, char[] dst, int offset) {
+        int length = str.length();
+        if (runStart == NEEDS_SHAPING) {
+            shape(glyphs, str, 0, length, dst, offset, null, null);
+            return;
+        }
 
-                    break;
+        if (str instanceof String) {
+            ((String) str).getChars(0, length, dst, offset);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dst[offset + i] = str.charAt(i);
+            }
+        }
+        if (runStart != NO_CHARACTER) {
+            reverseRun(dst, offset + runStart, offset + findRunEnd(str), null, null);
+        }
+    }
 
-                case 'ل':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(27)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(27)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(27)[getShapeIndex(null, str.charAt(i + 1))]);
+    /**
+     * Looks for characters which need the full shaping pass, that is letters
+     * to shape, right-to-left characters and paragraph separators splitting
+     * the left-to-right characters in several runs. ASCII characters are
+     * classified without any table lookup, unless glyph shapes were set for
+     * some of them.
+     *
+     * @return NEEDS_SHAPING if the text has any such character, otherwise the
+     * start of its only left-to-right run or NO_CHARACTER if it has none
+     */
+    private static int scan(PersianGlyphs glyphs, CharSequence str) {
+        char asciiEnd = glyphs.hasAsciiLetters() ? 0 : (char) 0x80;
+        int runStart = NO_CHARACTER;
+        for (int i = 0, n = str.length(); i < n; i++) {
+            char c = str.charAt(i);
+            if (c < asciiEnd) {
+                if (runStart == NO_CHARACTER) {
+                    if (isAsciiLetterOrDigit(c)) {
+                        runStart = i;
                     }
+                } else if (c < ' ' && isParagraphSeparator(c)) {
+                    return NEEDS_SHAPING;
+                }
+            } else if (glyphs.contains(c) || isRightToLeft(c)) {
+                return NEEDS_SHAPING;
+            } else if (runStart == NO_CHARACTER) {
+                if (isLeftToRight(c)) {
+                    runStart = i;
+                }
+            } else if (isParagraphSeparator(c)) {
+                return NEEDS_SHAPING;
+            }
+        }
+        return runStart;
+    }
 
-                    break;
+    /**
+     * Returns the index after the last left-to-right character of the text
+     * and the marks following it, the end of its only run when scan() found
+     * one.
+     */
+    private static int findRunEnd(CharSequence str) {
+        int end = str.length();
+        for (int i = end - 1; i >= 0; i--) {
+            char c = str.charAt(i);
+            if (isLeftToRight(c)) {
+                return end;
+            }
+            if (!extendsCluster(c)) {
+                end = i;
+            }
+        }
+        return 0;
+    }
 
-                case 'م':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(28)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(28)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(28)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    private static boolean isAsciiLetterOrDigit(char c) {
+        int letter = c | 0x20;
+        return (c >= '0' && c <= '9') || (letter >= 'a' && letter <= 'z');
+    }
 
-                    break;
+    /**
+     * Shapes the letters of a range of the text and reorders its left-to-right
+     * runs into the destination, starting at the given offset. Every character
+     * is shaped from its neighbours in the whole text, then a run is reversed
+     * in place once a right-to-left character, a paragraph separator or the
+     * end of the range closes it, so the range is processed in a single pass
+     * and the lines of a text are reordered on their own.
+     * <p>
+     * The neighbours of a letter are the closest characters which are not
+     * transparent, so marks like harakat do not break joining. The previous
+     * one is kept while moving forward and the next one is only searched past
+     * the last one found, so each mark is looked at twice at most. A text of
+     * a single character is left as is, even if its letter has a customized
+     * isolated form.
+     * <p>
+     * The range must not split a left-to-right run, that is it must start at
+     * the beginning of the text, at a character ending a run or right after
+     * one, and end at the end of the text or right after a character ending
+     * a run.
+     * <p>
+     * If the maps are not null, the same pass fills in the index in the
+     * destination of every character of the range and the index in the text
+     * of every character written.
+     *
+     * @param glyphs the glyph tables to shape with
+     * @param logicalToVisual the destination index of each character, indexed
+     * like the text
+     * @param visualToLogical the text index of each character, indexed like the
+     * destination
+     */
+    static void shape(PersianGlyphs glyphs, CharSequence str, int start, int end, char[] dst, int offset,
+            int[] logicalToVisual, int[] visualToLogical) {
+        int runStart = NO_CHARACTER;
+        int runEnd = 0;
+        int n = str.length();
+        int previousIndex = skipTransparentBackward(glyphs, str, start - 1);
+        int previous = previousIndex < 0 ? NO_CHARACTER : str.charAt(previousIndex);
+        int nextIndex = start;
+        for (int i = start, j = offset; i < end; i++, j++) {
+            char c = str.charAt(i);
+            char shape = c;
+            if (n > 1 && glyphs.contains(c)) {
+                if (nextIndex <= i) {
+                    nextIndex = skipTransparentForward(glyphs, str, i + 1);
+                }
+                int next = nextIndex < n ? str.charAt(nextIndex) : NO_CHARACTER;
+                shape = glyphs.get(c, glyphs.getShapeIndex(previous, next));
+            }
+            if (!glyphs.isTransparent(c)) {
+                previous = c;
+            }
+            c = shape;
+            dst[j] = c;
+            if (visualToLogical != null) {
+                logicalToVisual[i] = j;
+                visualToLogical[j] = i;
+            }
 
-                case 'ن':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(29)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(29)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(29)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+            if (isLeftToRight(c)) {
+                if (runStart == NO_CHARACTER) {
+                    runStart = j;
+                }
+                runEnd = j + 1;
+            } else if (runEnd == j && runStart != NO_CHARACTER && extendsCluster(c)) {
+                // Marks right after a run stay with its last character
+                runEnd = j + 1;
+            } else if (runStart != NO_CHARACTER && endsRun(c)) {
+                reverseRun(dst, runStart, runEnd, logicalToVisual, visualToLogical);
+                runStart = NO_CHARACTER;
+            }
+        }
+        if (runStart != NO_CHARACTER) {
+            reverseRun(dst, runStart, runEnd, logicalToVisual, visualToLogical);
+        }
+    }
 
-                    break;
+    /**
+     * Returns the glyph of one character of the text, shaped from its
+     * neighbours, or the character itself if it is not a letter.
+     */
+    static char shapeAt(PersianGlyphs glyphs, CharSequence str, int index) {
+        return shapeAt(glyphs, str, index, 0, str.length());
+    }
 
-                case 'و':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(30)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(30)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(30)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Returns the glyph of one character of the text like
+     * {@link #shapeAt(PersianGlyphs, CharSequence, int)}, as if the text
+     * was only the given range, for lines parsed on their own.
+     */
+    static char shapeAt(PersianGlyphs glyphs, CharSequence str, int index, int start, int end) {
+        char c = str.charAt(index);
+        if (end - start <= 1 || !glyphs.contains(c)) {
+            return c;
+        }
+        int previousIndex = index - 1;
+        while (previousIndex >= start && glyphs.isTransparent(str.charAt(previousIndex))) {
+            previousIndex--;
+        }
+        int nextIndex = index + 1;
+        while (nextIndex < end && glyphs.isTransparent(str.charAt(nextIndex))) {
+            nextIndex++;
+        }
+        int previous = previousIndex < start ? NO_CHARACTER : str.charAt(previousIndex);
+        int next = nextIndex < end ? str.charAt(nextIndex) : NO_CHARACTER;
+        return glyphs.get(c, glyphs.getShapeIndex(previous, next));
+    }
 
-                    break;
+    /**
+     * @return the glyph tables currently used by the parser
+     */
+    PersianGlyphs getGlyphs() {
+        return glyphs;
+    }
 
-                case 'ه':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(31)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(31)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(31)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Returns the index of the closest character at or before the given index
+     * which is not transparent, or -1 if there is none.
+     */
+    static int skipTransparentBackward(PersianGlyphs glyphs, CharSequence str, int index) {
+        while (index >= 0 && glyphs.isTransparent(str.charAt(index))) {
+            index--;
+        }
+        return index;
+    }
 
-                    break;
+    /**
+     * Returns the index of the closest character at or after the given index
+     * which is not transparent, or the length of the text if there is none.
+     */
+    static int skipTransparentForward(PersianGlyphs glyphs, CharSequence str, int index) {
+        int n = str.length();
+        while (index < n && glyphs.isTransparent(str.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
 
-                case 'ی':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(32)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(32)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(32)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Returns true for characters read from left-to-right which start or extend
+     * a run, that is Latin (and any other left-to-right script) letters and
+     * digits, Persian digits included.
+     * <p>
+     * Numbers require special treatment. Unlike the text they are read from
+     * left-to-right so we need to reverse them, together with any spaces and
+     * separators (like in "1,250.50" or "12:30") between the run's characters.
+     */
+    static boolean isLeftToRight(char c) {
+        switch (Character.getDirectionality(c)) {
+            case Character.DIRECTIONALITY_LEFT_TO_RIGHT:
+            case Character.DIRECTIONALITY_EUROPEAN_NUMBER:
+            case Character.DIRECTIONALITY_ARABIC_NUMBER:
+                return true;
+            default:
+                return Character.isDigit(c);
+        }
+    }
 
-                    break;
+    /**
+     * Returns true for characters read from right-to-left.
+     */
+    static boolean isRightToLeft(char c) {
+        switch (Character.getDirectionality(c)) {
+            case Character.DIRECTIONALITY_RIGHT_TO_LEFT:
+            case Character.DIRECTIONALITY_RIGHT_TO_LEFT_ARABIC:
+            case Character.DIRECTIONALITY_RIGHT_TO_LEFT_EMBEDDING:
+            case Character.DIRECTIONALITY_RIGHT_TO_LEFT_OVERRIDE:
+                return true;
+            default:
+                return false;
+        }
+    }
 
-                case 'ئ':
-                    if (i == (str.length() - 1)) {
-                        int x = getShapeIndex(str.charAt(i - 1), null);
-                        sb.append(GLYPHS.get(33)[x]);
-                    } else if (!(i == 0)) {
-                        sb.append(GLYPHS.get(33)[getShapeIndex(str.charAt(i - 1), str.charAt(i + 1))]);
-                    } else {
-                        sb.append(GLYPHS.get(33)[getShapeIndex(null, str.charAt(i + 1))]);
-                    }
+    /**
+     * Returns true for paragraph separators, like line feeds.
+     */
+    static boolean isParagraphSeparator(char c) {
+        return Character.getDirectionality(c) == Character.DIRECTIONALITY_PARAGRAPH_SEPARATOR;
+    }
 
-                    break;
+    /**
+     * Returns true for characters which end a left-to-right run, that is
+     * right-to-left characters and paragraph separators, so the runs of every
+     * line of a multi-line text are reversed on their own.
+     */
+    static boolean endsRun(char c) {
+        return isRightToLeft(c) || isParagraphSeparator(c);
+    }
 
-                default:
-                    sb.append(str.charAt(i));
+    /**
+     * Returns true for characters drawn together with the character before
+     * them, that is low surrogates and non-spacing or enclosing marks, which
+     * must stay after it when a run is reversed.
+     */
+    static boolean extendsCluster(char c) {
+        if (Character.isLowSurrogate(c)) {
+            return true;
+        }
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK;
+    }
 
+    /**
+     * Reverses a run of the destination like
+     * {@link #reverse(char[], int, int, int[], int[])}, then puts the
+     * characters of every surrogate pair and of every letter with its marks
+     * back in order, so they are reversed as a whole.
+     */
+    private static void reverseRun(char[] chars, int start, int end, int[] logicalToVisual, int[] visualToLogical) {
+        reverse(chars, start, end, logicalToVisual, visualToLogical);
+        for (int i = start; i < end; i++) {
+            if (extendsCluster(chars[i])) {
+                int clusterEnd = i + 1;
+                while (clusterEnd < end && extendsCluster(chars[clusterEnd])) {
+                    clusterEnd++;
+                }
+                if (clusterEnd < end) {
+                    // The character the marks or low surrogate belong to
+                    clusterEnd++;
+                }
+                reverse(chars, i, clusterEnd, logicalToVisual, visualToLogical);
+                i = clusterEnd - 1;
             }
-
         }
+    }
 
-        return sb;
+    private static void reverse(char[] chars, int start, int end) {
+        for (int i = start, j = end - 1; i < j; i++, j--) {
+            char c = chars[i];
+            chars[i] = chars[j];
+            chars[j] = c;
+        }
     }
 
-    private static int getShapeIndex(Character previous, Character next) {
-        int index = 0;
+    /**
+     * Reverses a run of the destination and, if the maps are not null, moves
+     * the indices of its characters along.
+     */
+    private static void reverse(char[] chars, int start, int end, int[] logicalToVisual, int[] visualToLogical) {
+        reverse(chars, start, end);
+        if (visualToLogical != null) {
+            for (int i = start, j = end - 1; i < j; i++, j--) {
+                int logical = visualToLogical[i];
+                visualToLogical[i] = visualToLogical[j];
+                visualToLogical[j] = logical;
+                logicalToVisual[visualToLogical[i]] = i;
+                logicalToVisual[logical] = j;
+            }
+        }
+    }
 
-        boolean b = previous == null || UNJOINABLE_COMING_BEFORE.matcher(previous.toString()).matches();
-        boolean n = next == null || UNJOINABLE_COMING_AFTER.matcher(next.toString()).matches();
+    /**
+     * The buffers a thread reuses between calls.
+     */
+    private static class Buffers {
+        private char[] scratch = new char[16];
+        private final StringBuilder result = new StringBuilder();
 
-        if (b && n) {
-            // Not connected. (Isolate)
-            index = 0;
-        } else if (!b && n) {
-            // Joined on the right. (Final)
-            index = 1;
-        } else if (b && !n) {
-            // Joined on the left. (Initial)
-            index = 2;
-        } else if (!b && !n) {
-            // Joined on both sides. (Medial)
-            index = 3;
+        private char[] getScratch(int length) {
+            if (scratch.length < length) {
+                scratch = new char[Math.max(length, scratch.length * 2)];
+            }
+            return scratch;
         }
-
-        return index;
     }
 
     @Override
-    public void write(JmeExporter jmeExporter) throws IOException { }
+    public void write(JmeExporter jmeExporter) throws IOException {
+        OutputCapsule capsule = jmeExporter.getCapsule(this);
+        capsule.write(reuseBuffers, "reuseBuffers", false);
+        capsule.write(cacheMaxEntries, "cacheMaxEntries", 0);
+        capsule.write(cacheMaxCharacters, "cacheMaxCharacters", 0);
+        capsule.write(serializeCache, "serializeCache", false);
+        capsule.write(glyphs.getGlyphChanges(GLYPHS), "glyphs", null);
+        capsule.write(glyphs.getJoiningChanges(GLYPHS), "joining", null);
+
+        ShapedTextCache cache = this.cache;
+        if (serializeCache && cache != null) {
+            List<String> texts = new ArrayList<>();
+            List<String> shaped = new ArrayList<>();
+            cache.snapshot(texts, shaped);
+            capsule.write(getTablesVersion(), "cacheTablesVersion", 0);
+            capsule.write(texts.toArray(new String[0]), "cacheTexts", null);
+            capsule.write(shaped.toArray(new String[0]), "cacheShaped", null);
+        }
+    }
 
     @Override
-    public void read(JmeImporter jmeImporter) throws IOException { }
-}
-
-/**
- * Contains the Persian glyphs and the different shapes each glyph has.
- */
-class PersianGlyphs {
-
-    /**
-     * Keep track of Persian alphabets and their glyph shapes.
-     */
-    private final LinkedHashMap<Integer, char[]> glyphs = new LinkedHashMap<>();
-
-    public PersianGlyphs() {
-
-        glyphs.put(0, new char[]{(char) 1570, (char) 65154, (char) 1570, (char) 65154}); // 'آ'  'ـآ' الف
-        glyphs.put(1, new char[]{(char) 1575, (char) 65166, (char) 1575, (char) 65166}); // 'ا' 'ـا'  الف
-        glyphs.put(2, new char[]{(char) 1576, (char) 65168, (char) 65169, (char) 65170}); // 'ب' 'ـب' 'بـ' 'ـبـ' ب
-        glyphs.put(3, new char[]{(char) 1662, (char) 64343, (char) 64344, (char) 64345}); // 'پ' 'ـپ' 'پـ' 'ـپـ' پ
-        glyphs.put(4, new char[]{(char) 1578, (char) 65174, (char) 65175, (char) 65176}); // 'ت' 'ـت' 'تـ' 'ـتـ' ت
-        glyphs.put(5, new char[]{(char) 1579, (char) 65178, (char) 65179, (char) 65180}); // 'ث' 'ـث' 'ثـ' 'ـثـ' ث
-        glyphs.put(6, new char[]{(char) 1580, (char) 65182, (char) 65183, (char) 65184 }); // 'ج' 'ـج' 'جـ' 'ـجـ' ج
-        glyphs.put(7, new char[]{(char) 1670, (char) 64379, (char) 64380, (char) 64381}); // 'چ' 'ـچ' 'چـ' 'ـچـ' چ
-        glyphs.put(8, new char[]{(char) 1581, (char) 65186, (char) 65187, (char) 65188}); // 'ح' 'ـح' 'حـ' 'ـحـ' ح
-        glyphs.put(9, new char[]{(char) 1582, (char) 65190, (char) 65191, (char) 65192}); // 'خ' 'ـخ' 'خـ' 'ـخـ' خ
-        glyphs.put(10, new char[]{(char) 1583, (char) 65194, (char) 1583, (char) 65194}); // 'د' 'ـد' د
-        glyphs.put(11, new char[]{(char) 1584, (char) 65196, (char) 1584, (char) 65196}); // 'ذ' 'ـذ' ذ
-        glyphs.put(12, new char[]{(char) 1585, (char) 65198, (char) 1585, (char) 65198}); // 'ر' 'ـر' ر
-        glyphs.put(13, new char[]{(char) 1586, (char) 65200, (char) 1586, (char) 65200}); // 'ز' 'ـز' ز
-        glyphs.put(14, new char[]{(char) 1688, (char) 64395, (char) 1688, (char) 64395}); // 'ژ' 'ـژ' ژ
-        glyphs.put(15, new char[]{(char) 1587, (char) 65202, (char) 65203, (char) 65204}); // 'س' 'ـس' 'سـ' 'ـسـ' س
-        glyphs.put(16, new char[]{(char) 1588, (char) 65206, (char) 65207, (char) 65208}); // 'ش' 'ـش' 'شـ' 'ـشـ'ش
-        glyphs.put(17, new char[]{(char) 1589, (char) 65210, (char) 65211, (char) 65212}); // 'ص' 'ـص' 'صـ' 'ـصـ'ص
-        glyphs.put(18, new char[]{(char) 1590, (char) 65214, (char) 65215, (char) 65216}); // 'ض' 'ـض' 'ضـ' 'ـضـ' ض
-        glyphs.put(19, new char[]{(char) 1591, (char) 65218, (char) 65219, (char) 65220}); // 'ط' 'ـط' 'طـ' 'ـطـ'ط
-        glyphs.put(20, new char[]{(char) 1592, (char) 65222, (char) 65223, (char) 65224}); // 'ظ' 'ـظ' 'ظـ' 'ـظـ'ظ
-        glyphs.put(21, new char[]{(char) 1593, (char) 65226, (char) 65227, (char) 65228}); // 'ع' 'ـع' 'عـ' 'ـعـ' ع
-        glyphs.put(22, new char[]{(char) 1594, (char) 65230, (char) 65231, (char) 65232}); // 'غ' 'ـغ' 'غـ' 'ـغـ'غ
-        glyphs.put(23, new char[]{(char) 1601, (char) 65234, (char) 65235, (char) 65236}); // 'ف' 'ـف' 'فـ' 'ـفـ'ف
-        glyphs.put(24, new char[]{(char) 1602, (char) 65238, (char) 65239, (char) 65240}); // 'ق' 'ـق' 'قـ' 'ـقـ'ق
-        glyphs.put(25, new char[]{(char) 1603, (char) 64399, (char) 64400, (char) 64401}); // 'ک' 'ـک' 'کـ' 'ـکـ' ک
-        glyphs.put(26, new char[]{(char) 1711, (char) 64403, (char) 64404, (char) 64405}); // 'گ' 'ـگ' 'گـ' 'ـگـ'  گ
-        glyphs.put(27, new char[]{(char) 1604, (char) 65246, (char) 65247, (char) 65248}); // 'ل' 'ـل' 'لـ' 'ـلـ' ل
-        glyphs.put(28, new char[]{(char) 1605, (char) 65250, (char) 65251, (char) 65252}); // 'م' 'ـم' 'مـ' 'ـمـ' م
-        glyphs.put(29, new char[]{(char) 1606, (char) 65254, (char) 65255, (char) 65256}); // 'ن' 'ـن' 'نـ' 'ـنـ'  ن
-        glyphs.put(30, new char[]{(char) 1608, (char) 65262, (char) 1608, (char) 65262}); // 'و' 'ـو' واو
-        glyphs.put(31, new char[]{(char) 1607, (char) 65258, (char) 65259, (char) 65260}); // 'ه' 'ـه' 'هـ' 'ـهـ' ه
-        glyphs.put(32, new char[]{(char) 1609, (char) 64509, (char) 64510, (char) 64511}); // 'ی' 'ـی' 'یـ' 'ـیـ'  یا
-        glyphs.put(33, new char[]{(char) 1574, (char) 65162, (char) 65163, (char) 65164}); // 'ئ' 'ﺊ' 'ﺋ' 'ﺌ'  ئ
-    }
-    
-    char[] get(int key) {
-        return glyphs.get(key);
+    public void read(JmeImporter jmeImporter) throws IOException {
+        InputCapsule capsule = jmeImporter.getCapsule(this);
+        reuseBuffers = capsule.readBoolean("reuseBuffers", false);
+        serializeCache = capsule.readBoolean("serializeCache", false);
+        glyphs = GLYPHS.withChanges(capsule.readIntArray("glyphs", null), capsule.readIntArray("joining", null));
+        setCacheLimits(capsule.readInt("cacheMaxEntries", 0), capsule.readInt("cacheMaxCharacters", 0));
+
+        ShapedTextCache cache = this.cache;
+        String[] texts = capsule.readStringArray("cacheTexts", null);
+        String[] shaped = capsule.readStringArray("cacheShaped", null);
+        if (cache != null && texts != null && shaped != null) {
+            // Texts cached with other tables or rules are parsed again.
+            boolean current = capsule.readLong("cacheTablesVersion", 0) == getTablesVersion();
+            for (int i = 0; i < texts.length; i++) {
+                if (current) {
+                    cache.put(texts[i], shaped[i]);
+                } else {
+                    char[] chars = new char[texts[i].length()];
+                    shape(cache.getGlyphs(), texts[i], chars, 0);
+                    cache.put(texts[i], new String(chars));
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,429 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Contains the Arabic script letters and the different shapes each letter
+ * has, and which neighbours each character joins to, generated from the
+ * Unicode data in ArabicShapingData. The tables are never modified once
+ * built, customized tables are copies.
+ * <p>
+ * The tables are split in pages of 64 characters, and an index gives the
+ * page of every block of 64 characters of the BMP. Blocks without Arabic
+ * letters share the same non-joining page, so the tables only take a few
+ * pages and a lookup is two array reads.
+ *
+ * @author Ali-RS
+ */
+class PersianGlyphs {
+
+    private final static int PAGE_SHIFT = 6;
+    private final static int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+    private final static int BLOCK_COUNT = 0x10000 >>> PAGE_SHIFT;
+    /**
+     * The number of shapes of each glyph, in order Isolate, Final, Initial and Medial.
+     */
+    private final static int SHAPE_COUNT = 4;
+    /**
+     * The number of chars of each character in a page: its joining class then
+     * its shapes.
+     */
+    private final static int ENTRY_SIZE = 1 + SHAPE_COUNT;
+    /**
+     * The page of the blocks without joining characters.
+     */
+    private final static char NON_JOINING_PAGE = 0;
+
+    final static byte UNJOINABLE_BEFORE = 1;
+    final static byte UNJOINABLE_AFTER = 2;
+    /**
+     * Marks characters skipped when looking for the neighbours of a letter.
+     */
+    final static byte TRANSPARENT = 4;
+
+    /**
+     * The page of every block of characters.
+     */
+    private final char[] index;
+    /**
+     * The joining class and the shapes of the characters, indexed by
+     * (character &amp; PAGE_MASK) * ENTRY_SIZE. The shapes of characters which
+     * are not letters are zero. Pages may be shared with other tables.
+     */
+    private final char[][] pages;
+    /**
+     * The letter of every glyph which is not the letter itself, indexed by
+     * glyph - firstGlyph, zero for other characters. With the default tables
+     * it spans the presentation forms blocks.
+     */
+    private final char[] letters;
+    private final char firstGlyph;
+    private final long checksum;
+    /**
+     * True if glyph shapes were set for an ASCII character.
+     */
+    private final boolean asciiLetters;
+
+    public PersianGlyphs() {
+        char[] index = new char[BLOCK_COUNT];
+        char[][] pages = {createNonJoiningPage()};
+        char[] data = ArabicShapingData.CHARACTERS;
+        for (int i = 0; i < data.length; i += ArabicShapingData.STRIDE) {
+            char c = data[i];
+            int block = c >>> PAGE_SHIFT;
+            if (index[block] == NON_JOINING_PAGE) {
+                index[block] = (char) pages.length;
+                pages = Arrays.copyOf(pages, pages.length + 1);
+                pages[index[block]] = pages[NON_JOINING_PAGE].clone();
+            }
+            char[] page = pages[index[block]];
+            int offset = getOffset(c);
+            page[offset] = (char) getJoiningClass(data[i + 1]);
+            char end = data[i + 2];
+            if (end != 0) {
+                char initial = data[i + 3];
+                char medial = data[i + 4];
+                page[offset + 1] = c;
+                page[offset + 2] = end;
+                // Letters which do not join to the following letter, and the
+                // few without all the forms, use the isolated and final forms
+                page[offset + 3] = initial != 0 ? initial : c;
+                page[offset + 4] = medial != 0 ? medial : end;
+            }
+        }
+        this.index = index;
+        this.pages = pages;
+        this.firstGlyph = findFirstGlyph();
+        this.letters = createLetterTable();
+        this.checksum = computeChecksum();
+        this.asciiLetters = findAsciiLetters();
+    }
+
+    private PersianGlyphs(char[] index, char[][] pages) {
+        this.index = index;
+        this.pages = pages;
+        this.firstGlyph = findFirstGlyph();
+        this.letters = createLetterTable();
+        this.checksum = computeChecksum();
+        this.asciiLetters = findAsciiLetters();
+    }
+
+    private static char[] createNonJoiningPage() {
+        char[] page = new char[(PAGE_MASK + 1) * ENTRY_SIZE];
+        for (int offset = 0; offset < page.length; offset += ENTRY_SIZE) {
+            page[offset] = UNJOINABLE_BEFORE | UNJOINABLE_AFTER;
+        }
+        return page;
+    }
+
+    /**
+     * Returns the joining class of a Unicode joining type.
+     */
+    private static int getJoiningClass(char joiningType) {
+        switch (joiningType) {
+            case 'R':
+                return UNJOINABLE_BEFORE;
+            case 'L':
+                return UNJOINABLE_AFTER;
+            case 'T':
+                return TRANSPARENT;
+            case 'D':
+            case 'C':
+                return 0;
+            default:
+                return UNJOINABLE_BEFORE | UNJOINABLE_AFTER;
+        }
+    }
+
+    private char findFirstGlyph() {
+        char first = Character.MAX_VALUE;
+        for (int c = 0; c < 0x10000; c++) {
+            if (getPage(c) == pages[NON_JOINING_PAGE]) {
+                c |= PAGE_MASK;
+                continue;
+            }
+            for (int shape = 0; shape < SHAPE_COUNT; shape++) {
+                char glyph = getPage(c)[getOffset(c) + 1 + shape];
+                if (glyph != 0 && glyph != c && glyph < first) {
+                    first = glyph;
+                }
+            }
+        }
+        return first;
+    }
+
+    private char[] createLetterTable() {
+        char[] table = new char[0];
+        for (int c = 0; c < 0x10000; c++) {
+            if (getPage(c) == pages[NON_JOINING_PAGE]) {
+                c |= PAGE_MASK;
+                continue;
+            }
+            for (int shape = 0; shape < SHAPE_COUNT; shape++) {
+                char glyph = getPage(c)[getOffset(c) + 1 + shape];
+                if (glyph != 0 && glyph != c) {
+                    int i = glyph - firstGlyph;
+                    if (i >= table.length) {
+                        table = Arrays.copyOf(table, i + 1);
+                    }
+                    table[i] = (char) c;
+                }
+            }
+        }
+        return table;
+    }
+
+    private boolean findAsciiLetters() {
+        for (char c = 0; c < 0x80; c++) {
+            if (contains(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long computeChecksum() {
+        CRC32 crc = new CRC32();
+        char[] nonJoining = pages[NON_JOINING_PAGE];
+        for (int block = 0; block < BLOCK_COUNT; block++) {
+            // Customized blocks which end up non-joining are left out too, so
+            // the checksum only depends on the content of the tables
+            if (index[block] != NON_JOINING_PAGE && !Arrays.equals(pages[index[block]], nonJoining)) {
+                crc.update(block >>> 8);
+                crc.update(block);
+                for (char c : pages[index[block]]) {
+                    crc.update(c >>> 8);
+                    crc.update(c);
+                }
+            }
+        }
+        return crc.getValue();
+    }
+
+    private char[] getPage(int c) {
+        return pages[index[c >>> PAGE_SHIFT]];
+    }
+
+    private static int getOffset(int c) {
+        return (c & PAGE_MASK) * ENTRY_SIZE;
+    }
+
+    /**
+     * Returns a copy of the index and pages with a writable copy of the page
+     * of the character, to build customized tables from.
+     */
+    private PersianGlyphs copyPage(char c) {
+        int block = c >>> PAGE_SHIFT;
+        char[] indexCopy = index;
+        char[][] pagesCopy;
+        if (index[block] == NON_JOINING_PAGE) {
+            indexCopy = index.clone();
+            indexCopy[block] = (char) pages.length;
+            pagesCopy = Arrays.copyOf(pages, pages.length + 1);
+        } else {
+            pagesCopy = pages.clone();
+        }
+        pagesCopy[indexCopy[block]] = pages[index[block]].clone();
+        return new PersianGlyphs(indexCopy, pagesCopy);
+    }
+
+    /**
+     * Returns a copy of the tables with the given shapes for the letter.
+     */
+    PersianGlyphs withGlyph(char letter, char[] shapes) {
+        PersianGlyphs copy = copyPage(letter);
+        System.arraycopy(shapes, 0, copy.getPage(letter), getOffset(letter) + 1, SHAPE_COUNT);
+        return new PersianGlyphs(copy.index, copy.pages);
+    }
+
+    /**
+     * Returns a copy of the tables with the given joining class for the
+     * character, a combination of UNJOINABLE_BEFORE, UNJOINABLE_AFTER and
+     * TRANSPARENT.
+     */
+    PersianGlyphs withJoining(char c, int unjoinable) {
+        PersianGlyphs copy = copyPage(c);
+        copy.getPage(c)[getOffset(c)] = (char) unjoinable;
+        return new PersianGlyphs(copy.index, copy.pages);
+    }
+
+    /**
+     * Returns the letters whose shapes differ from the base tables, five ints
+     * per letter: the letter and its four shapes.
+     */
+    int[] getGlyphChanges(PersianGlyphs base) {
+        int[] changes = new int[0];
+        for (int c = 0; c < 0x10000; c++) {
+            char[] page = getPage(c);
+            char[] basePage = base.getPage(c);
+            if (page == basePage) {
+                // Skip the rest of the block
+                c |= PAGE_MASK;
+                continue;
+            }
+            int offset = getOffset(c);
+            for (int shape = 1; shape <= SHAPE_COUNT; shape++) {
+                if (page[offset + shape] != basePage[offset + shape]) {
+                    int n = changes.length;
+                    changes = Arrays.copyOf(changes, n + 1 + SHAPE_COUNT);
+                    changes[n] = c;
+                    for (int j = 0; j < SHAPE_COUNT; j++) {
+                        changes[n + 1 + j] = page[offset + 1 + j];
+                    }
+                    break;
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Returns the characters whose joining class differs from the base
+     * tables, two ints per character: the character and its joining class.
+     */
+    int[] getJoiningChanges(PersianGlyphs base) {
+        int[] changes = new int[0];
+        for (int c = 0; c < 0x10000; c++) {
+            char[] page = getPage(c);
+            char[] basePage = base.getPage(c);
+            if (page == basePage) {
+                c |= PAGE_MASK;
+                continue;
+            }
+            int offset = getOffset(c);
+            if (page[offset] != basePage[offset]) {
+                int n = changes.length;
+                changes = Arrays.copyOf(changes, n + 2);
+                changes[n] = c;
+                changes[n + 1] = page[offset];
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Returns a copy of the tables with the changes returned by
+     * getGlyphChanges() and getJoiningChanges() applied, either may be null.
+     */
+    PersianGlyphs withChanges(int[] glyphChanges, int[] joiningChanges) {
+        PersianGlyphs result = this;
+        if (glyphChanges != null) {
+            for (int i = 0; i + SHAPE_COUNT < glyphChanges.length; i += 1 + SHAPE_COUNT) {
+                char[] shapes = new char[SHAPE_COUNT];
+                for (int j = 0; j < SHAPE_COUNT; j++) {
+                    shapes[j] = (char) glyphChanges[i + 1 + j];
+                }
+                result = result.withGlyph((char) glyphChanges[i], shapes);
+            }
+        }
+        if (joiningChanges != null) {
+            for (int i = 0; i + 1 < joiningChanges.length; i += 2) {
+                result = result.withJoining((char) joiningChanges[i], joiningChanges[i + 1]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the CRC32 of the tables
+     */
+    long getChecksum() {
+        return checksum;
+    }
+
+    private boolean isJoinable(int c, byte unjoinable) {
+        return c >= 0 && (getPage(c)[getOffset(c)] & unjoinable) == 0;
+    }
+
+    /**
+     * Returns the shape of a letter from its neighbours, either character may be
+     * negative at the start or end of the text.
+     *
+     * @return 0 if not connected (Isolate), 1 if joined on the right (Final),
+     * 2 if joined on the left (Initial) and 3 if joined on both sides (Medial).
+     */
+    int getShapeIndex(int previous, int next) {
+        int index = isJoinable(previous, UNJOINABLE_BEFORE) ? 1 : 0;
+        if (isJoinable(next, UNJOINABLE_AFTER)) {
+            index |= 2;
+        }
+        return index;
+    }
+
+    /**
+     * Returns true if the character is a mark skipped when looking for the
+     * neighbours of a letter.
+     */
+    boolean isTransparent(char c) {
+        return (getPage(c)[getOffset(c)] & TRANSPARENT) != 0;
+    }
+
+    /**
+     * Returns true if any ASCII character is a letter with glyph shapes,
+     * which only customized tables have.
+     */
+    boolean hasAsciiLetters() {
+        return asciiLetters;
+    }
+
+    /**
+     * Returns true if the character is a letter with glyph shapes.
+     */
+    boolean contains(char c) {
+        return getPage(c)[getOffset(c) + 1] != 0;
+    }
+
+    /**
+     * Returns the letter a glyph is a shape of, or the character itself if it
+     * is not a glyph of the tables.
+     */
+    char getLetter(char glyph) {
+        int i = glyph - firstGlyph;
+        if (i >= 0 && i < letters.length) {
+            char letter = letters[i];
+            if (letter != 0) {
+                return letter;
+            }
+        }
+        return glyph;
+    }
+
+    /**
+     * Returns the glyph of a letter for the given shape index.
+     */
+    char get(char letter, int shape) {
+        return getPage(letter)[getOffset(letter) + 1 + shape];
+    }
+}
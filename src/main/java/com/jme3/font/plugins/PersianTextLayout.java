@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import com.jme3.font.BitmapCharacter;
+import com.jme3.font.BitmapCharacterSet;
+import com.jme3.font.BitmapFont;
+import com.jme3.font.GlyphParser;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Breaks a text into lines that fit a given width, measuring the shaped
+ * glyphs of a BitmapFont, and returns every line parsed and ready to render.
+ * Wrapping parsed text in BitmapText instead breaks lines after the
+ * left-to-right runs were reversed and the letters shaped for the whole
+ * paragraph, so runs cut by a line break come out in the wrong order.
+ * <p>
+ * Each character is measured with the glyph it takes in the line, its
+ * advance and the kerning with the glyph it is drawn next to, together with
+ * the width the line would have if it ended right after it, that is with
+ * its last letter in the final or isolated form. The line is broken at the
+ * last space (or inside a word longer than the line) before the first
+ * character which does not fit, so each line is measured in a single pass
+ * and only parsed once its end is known. Runs are reversed within the line.
+ * <p>
+ * The lines are already parsed, render them with a font without glyph
+ * parser, a BitmapText would parse them again otherwise.
+ *
+ * @author Ali-RS
+ */
+public class PersianTextLayout {
+
+    private final BitmapFont font;
+    private final PersianGlyphParser parser;
+
+    /**
+     * Lays out text with the glyph parser of the font if it is a
+     * PersianGlyphParser, or with a new parser otherwise.
+     */
+    public PersianTextLayout(BitmapFont font) {
+        this(font, getParser(font));
+    }
+
+    public PersianTextLayout(BitmapFont font, PersianGlyphParser parser) {
+        this.font = font;
+        this.parser = parser;
+    }
+
+    private static PersianGlyphParser getParser(BitmapFont font) {
+        GlyphParser parser = font.getGlyphParser();
+        return parser instanceof PersianGlyphParser ? (PersianGlyphParser) parser : new PersianGlyphParser();
+    }
+
+    /**
+     * Lays out the text at the preferred size of the font.
+     *
+     * @see #layout(CharSequence, float, float)
+     */
+    public List<Line> layout(CharSequence text, float maxWidth) {
+        return layout(text, maxWidth, font.getPreferredSize());
+    }
+
+    /**
+     * Breaks the text into lines no wider than the given width, at spaces
+     * and paragraph separators (a CR LF is a single break). A word longer
+     * than the width is broken where it overflows, every line has at least
+     * one character.
+     *
+     * @param text the text in logical order
+     * @param maxWidth the width of the box, in the units of BitmapText
+     * @param size the size of the text, like BitmapText.setSize()
+     * @return the lines in order, parsed
+     */
+    public List<Line> layout(CharSequence text, float maxWidth, float size) {
+        BitmapCharacterSet charSet = font.getCharSet();
+        float scale = size / charSet.getRenderedSize();
+        float limit = maxWidth / scale;
+        PersianGlyphs glyphs = parser.getGlyphs();
+
+        List<Line> lines = new ArrayList<>();
+        int lineStart = 0;
+        int n = text.length();
+        while (true) {
+            int lineBreak = findBreak(text, lineStart, glyphs, charSet, limit);
+            if (lineBreak == n) {
+                lines.add(createLine(text, lineStart, trimEnd(text, lineStart, n), glyphs, charSet, scale));
+                return lines;
+            }
+
+            char c = text.charAt(lineBreak);
+            if (PersianGlyphParser.isParagraphSeparator(c)) {
+                lines.add(createLine(text, lineStart, trimEnd(text, lineStart, lineBreak), glyphs, charSet, scale));
+                lineStart = lineBreak + (c == '\r' && lineBreak + 1 < n && text.charAt(lineBreak + 1) == '\n' ? 2 : 1);
+            } else if (c == ' ' && trimEnd(text, lineStart, lineBreak) > lineStart) {
+                lines.add(createLine(text, lineStart, trimEnd(text, lineStart, lineBreak), glyphs, charSet, scale));
+                lineStart = lineBreak + 1;
+            } else {
+                lines.add(createLine(text, lineStart, lineBreak, glyphs, charSet, scale));
+                lineStart = lineBreak;
+            }
+        }
+    }
+
+    /**
+     * Measures the line starting at the given index and returns where it
+     * breaks: the index of the paragraph separator ending it, of the last
+     * space before the first character which does not fit, of that character
+     * if the line has no such space, or the length of the text. Spaces after
+     * a word never overflow since the line breaks at them, and the first
+     * character always fits.
+     */
+    private static int findBreak(CharSequence text, int start, PersianGlyphs glyphs,
+            BitmapCharacterSet charSet, float limit) {
+        // Width of the line up to the current character, with every glyph
+        // joined to the characters around it
+        float width = 0;
+        // What ending the line after its last letter adds to the width, when
+        // the letter takes its final or isolated form instead
+        float endAdjustment = 0;
+        int space = -1;
+        boolean hasContent = false;
+        BitmapCharacter previous = null;
+        char previousGlyph = 0;
+        boolean previousLeftToRight = false;
+        for (int i = start, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (PersianGlyphParser.isParagraphSeparator(c)) {
+                return i;
+            }
+
+            char glyph = PersianGlyphParser.shapeAt(glyphs, text, i, start, n);
+            BitmapCharacter character = charSet.getCharacter(glyph);
+            boolean leftToRight = PersianGlyphParser.isLeftToRight(glyph);
+            float advance = getAdvance(previous, previousGlyph, previousLeftToRight, glyph, character, leftToRight);
+            if (!glyphs.isTransparent(c)) {
+                char endGlyph = PersianGlyphParser.shapeAt(glyphs, text, i, start, i + 1);
+                endAdjustment = endGlyph == glyph ? 0
+                        : getAdvance(previous, previousGlyph, previousLeftToRight, endGlyph,
+                                charSet.getCharacter(endGlyph), PersianGlyphParser.isLeftToRight(endGlyph)) - advance;
+            }
+
+            if (c == ' ' && hasContent) {
+                space = i;
+            } else if (width + advance + endAdjustment > limit && i > start) {
+                if (space >= 0) {
+                    return space;
+                }
+                // Break inside the word, but not inside a surrogate pair or
+                // between a letter and its marks
+                int end = i;
+                while (end > start + 1 && PersianGlyphParser.extendsCluster(text.charAt(end))) {
+                    end--;
+                }
+                return end;
+            } else if (c != ' ') {
+                hasContent = true;
+            }
+            width += advance;
+            previous = character;
+            previousGlyph = glyph;
+            previousLeftToRight = leftToRight;
+        }
+        return text.length();
+    }
+
+    private static int trimEnd(CharSequence text, int start, int end) {
+        while (end > start && text.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Returns the advance of a glyph with its kerning, in the units of the
+     * font. Left-to-right runs are reversed, so a glyph of a run is drawn
+     * before the previous glyph of the same run.
+     */
+    private static float getAdvance(BitmapCharacter previous, char previousGlyph, boolean previousLeftToRight,
+            char glyph, BitmapCharacter character, boolean leftToRight) {
+        if (leftToRight && previousLeftToRight) {
+            return getAdvance(character, previousGlyph, character);
+        }
+        return getAdvance(previous, glyph, character);
+    }
+
+    /**
+     * Returns the advance of a glyph, with the kerning of the previous one
+     * before it, in the units of the font.
+     */
+    private static float getAdvance(BitmapCharacter previous, char glyph, BitmapCharacter character) {
+        if (character == null) {
+            return 0;
+        }
+        float advance = character.getXAdvance();
+        if (previous != null) {
+            advance += previous.getKerning(glyph);
+        }
+        return advance;
+    }
+
+    /**
+     * Parses a line on its own and measures its glyphs.
+     */
+    private static Line createLine(CharSequence text, int start, int end, PersianGlyphs glyphs,
+            BitmapCharacterSet charSet, float scale) {
+        CharSequence line = text.subSequence(start, end);
+        char[] chars = new char[line.length()];
+        PersianGlyphParser.shape(glyphs, line, 0, chars.length, chars, 0, null, null);
+        float width = 0;
+        BitmapCharacter previous = null;
+        for (char glyph : chars) {
+            BitmapCharacter character = charSet.getCharacter(glyph);
+            width += getAdvance(previous, glyph, character);
+            previous = character;
+        }
+        return new Line(new String(chars), start, end, width * scale);
+    }
+
+    /**
+     * A line of the layout.
+     */
+    public static class Line {
+
+        private final String text;
+        private final int start;
+        private final int end;
+        private final float width;
+
+        Line(String text, int start, int end, float width) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            this.width = width;
+        }
+
+        /**
+         * @return the parsed line, ready to render
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * @return the index in the text of the first character of the line
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * @return the index in the text after the last character of the
+         * line, spaces at the end of the line are left out
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        /**
+         * @return the width of the parsed line, in the units of BitmapText
+         */
+        public float getWidth() {
+            return width;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+}
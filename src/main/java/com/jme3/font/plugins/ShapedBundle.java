@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * A bundle of texts parsed ahead of time, so static texts like the ones of a
+ * localization file are not parsed again on every launch. The bundle is a
+ * file memory-mapped when opened and its texts are read as CharBuffer views
+ * of the mapping, without any parsing or copying.
+ * <p>
+ * A bundle records the {@link PersianGlyphParser#getTablesVersion() version}
+ * of the glyph tables it was parsed with, and is refused by a parser with
+ * other tables. Bundles are created from code with
+ * {@link #write(Map, PersianGlyphParser, OutputStream)} or from a properties
+ * file with the main method:
+ * <pre>
+ * java com.jme3.font.plugins.ShapedBundle Messages_fa.properties Messages_fa.bin
+ * </pre>
+ * <p>
+ * The file starts with a header of the magic number, format version, tables
+ * version and number of texts, followed by an index of four ints per text
+ * (offset and length of the key, offset and length of the parsed text, in
+ * characters, sorted by key) and by all the keys and parsed texts as UTF-16.
+ *
+ * @author Ali-RS
+ */
+public class ShapedBundle {
+
+    private final static int MAGIC = 0x50475342; // "PGSB"
+    private final static int FORMAT_VERSION = 1;
+    private final static int HEADER_SIZE = 20;
+    private final static int INDEX_ENTRY_SIZE = 16;
+
+    private final ByteBuffer index;
+    private final CharBuffer chars;
+    private final int size;
+
+    private ShapedBundle(ByteBuffer index, CharBuffer chars, int size) {
+        this.index = index;
+        this.chars = chars;
+        this.size = size;
+    }
+
+    /**
+     * Memory-maps a bundle file written with the default glyph tables.
+     *
+     * @see #open(Path, PersianGlyphParser)
+     */
+    public static ShapedBundle open(Path file) throws IOException {
+        return open(file, new PersianGlyphParser());
+    }
+
+    /**
+     * Memory-maps the bundle file.
+     *
+     * @param file the bundle file
+     * @param parser the parser the texts must have been parsed with
+     * @throws IOException if the file can not be read, is not a bundle, is
+     * truncated or corrupt or was written with other glyph tables than the
+     * ones of the parser
+     */
+    public static ShapedBundle open(Path file, PersianGlyphParser parser) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a shaped bundle");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException(file + " has unsupported format version " + buffer.getInt(4));
+        }
+        if (buffer.getLong(8) != parser.getTablesVersion()) {
+            throw new IOException(file + " is stale, it was written with other glyph tables");
+        }
+        int size = buffer.getInt(16);
+        long indexEnd = HEADER_SIZE + (long) size * INDEX_ENTRY_SIZE;
+        if (size < 0 || indexEnd > buffer.capacity()) {
+            throw new IOException(file + " is truncated");
+        }
+        int charsStart = (int) indexEnd;
+        // Checked once here so get() never reads past the texts
+        long charCount = (buffer.capacity() - charsStart) / 2;
+        for (int entry = HEADER_SIZE; entry < charsStart; entry += 8) {
+            int offset = buffer.getInt(entry);
+            int length = buffer.getInt(entry + 4);
+            if (offset < 0 || length < 0 || (long) offset + length > charCount) {
+                throw new IOException(file + " is truncated or corrupt");
+            }
+        }
+
+        ByteBuffer index = buffer.duplicate();
+        index.position(HEADER_SIZE);
+        index.limit(charsStart);
+        ByteBuffer chars = buffer.duplicate();
+        chars.position(charsStart);
+        return new ShapedBundle(index.slice(), chars.slice().asCharBuffer(), size);
+    }
+
+    /**
+     * Returns a read-only view of the parsed text of the given key, or null if
+     * the bundle has no such key.
+     */
+    public CharBuffer get(String key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = middle * INDEX_ENTRY_SIZE;
+            int c = compare(index.getInt(entry), index.getInt(entry + 4), key);
+            if (c < 0) {
+                low = middle + 1;
+            } else if (c > 0) {
+                high = middle - 1;
+            } else {
+                int offset = index.getInt(entry + 8);
+                CharBuffer text = chars.duplicate();
+                text.position(offset);
+                text.limit(offset + index.getInt(entry + 12));
+                return text.slice().asReadOnlyBuffer();
+            }
+        }
+        return null;
+    }
+
+    private int compare(int offset, int length, String key) {
+        for (int i = 0, n = Math.min(length, key.length()); i < n; i++) {
+            int c = chars.get(offset + i) - key.charAt(i);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return length - key.length();
+    }
+
+    /**
+     * @return the number of texts in the bundle
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Parses the texts and writes them as a bundle to the stream, which is
+     * left open. The texts are parsed one by one into a scratch array, so
+     * the cache and the metrics of the parser are left untouched.
+     *
+     * @param texts the texts to parse, by key
+     * @param parser the parser to parse them with
+     * @param out the stream to write the bundle to
+     * @throws IOException if writing fails
+     */
+    public static void write(Map<String, ? extends CharSequence> texts, PersianGlyphParser parser,
+            OutputStream out) throws IOException {
+        TreeMap<String, CharSequence> sorted = new TreeMap<>(texts);
+
+        // DataOutputStream writes chars and ints a byte at a time
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        data.writeLong(parser.getTablesVersion());
+        data.writeInt(sorted.size());
+
+        // A parsed text is as long as its text
+        int offset = 0;
+        for (Map.Entry<String, CharSequence> entry : sorted.entrySet()) {
+            int keyLength = entry.getKey().length();
+            int textLength = entry.getValue().length();
+            data.writeInt(offset);
+            data.writeInt(keyLength);
+            data.writeInt(offset + keyLength);
+            data.writeInt(textLength);
+            offset += keyLength + textLength;
+        }
+        char[] scratch = new char[16];
+        for (Map.Entry<String, CharSequence> entry : sorted.entrySet()) {
+            data.writeChars(entry.getKey());
+            CharSequence text = entry.getValue();
+            if (scratch.length < text.length()) {
+                scratch = new char[Math.max(text.length(), scratch.length * 2)];
+            }
+            int length = parser.parseInto(text, scratch);
+            for (int i = 0; i < length; i++) {
+                data.writeChar(scratch[i]);
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Parses the texts of a properties file and writes them as a bundle file.
+     *
+     * @param properties the properties file, read as UTF-8
+     * @param bundle the bundle file to write
+     * @throws IOException if reading or writing fails
+     */
+    public static void write(Path properties, Path bundle) throws IOException {
+        Properties texts = new Properties();
+        try (Reader reader = Files.newBufferedReader(properties, StandardCharsets.UTF_8)) {
+            texts.load(reader);
+        }
+        Map<String, String> map = new HashMap<>();
+        for (String key : texts.stringPropertyNames()) {
+            map.put(key, texts.getProperty(key));
+        }
+        try (OutputStream out = Files.newOutputStream(bundle)) {
+            write(map, new PersianGlyphParser(), out);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ShapedBundle <texts.properties> <bundle file>");
+            System.exit(1);
+        }
+        write(Paths.get(args[0]), Paths.get(args[1]));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import java.nio.CharBuffer;
+
+/**
+ * A parsed text together with the maps between the indices of its
+ * characters in the text (logical order) and in the parsed text (the order
+ * BitmapText lays it out in). Both maps are filled while parsing, so caret
+ * movement, selection highlighting and hit-testing are array lookups.
+ * <p>
+ * Parsing only reorders characters, so the parsed text has the length of the
+ * text and each map is the inverse of the other. A result may be reused by
+ * passing it to {@link PersianGlyphParser#parseWithIndexMaps(CharSequence, ShapedText)},
+ * which only allocates when the text is longer than the previous ones.
+ *
+ * @author Ali-RS
+ */
+public class ShapedText {
+
+    private char[] shaped = new char[0];
+    private int[] logicalToVisual = new int[0];
+    private int[] visualToLogical = new int[0];
+    private int length;
+
+    public ShapedText() {
+    }
+
+    /**
+     * Makes room for a text of the given length.
+     */
+    void setLength(int length) {
+        if (shaped.length < length) {
+            shaped = new char[length];
+            logicalToVisual = new int[length];
+            visualToLogical = new int[length];
+        }
+        this.length = length;
+    }
+
+    char[] getShapedArray() {
+        return shaped;
+    }
+
+    int[] getLogicalToVisualArray() {
+        return logicalToVisual;
+    }
+
+    int[] getVisualToLogicalArray() {
+        return visualToLogical;
+    }
+
+    /**
+     * @return the length of the text, which is also the length of its parsed form
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns a read-only view of the parsed text, which is only valid until
+     * the result is reused.
+     */
+    public CharSequence getShapedText() {
+        return CharBuffer.wrap(shaped, 0, length).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the index in the parsed text of a character of the text.
+     *
+     * @param logicalIndex the index of the character in the text
+     * @return the index of its glyph in the parsed text
+     * @throws IndexOutOfBoundsException if the index is out of the text
+     */
+    public int getVisualIndex(int logicalIndex) {
+        checkIndex(logicalIndex);
+        return logicalToVisual[logicalIndex];
+    }
+
+    /**
+     * Returns the index in the text of a character of the parsed text.
+     *
+     * @param visualIndex the index of the glyph in the parsed text, like the
+     * one under the mouse
+     * @return the index of its character in the text
+     * @throws IndexOutOfBoundsException if the index is out of the text
+     */
+    public int getLogicalIndex(int visualIndex) {
+        checkIndex(visualIndex);
+        return visualToLogical[visualIndex];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(shaped, 0, length);
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A least recently used cache of shaped text keyed by the original text,
+ * bounded by both its number of entries and the total length of the cached
+ * texts.
+ * <p>
+ * The cache is safe to use from several threads. It is split into segments
+ * chosen by the hash of the text, each with its own lock and its own share of
+ * the entries, so threads only contend when they parse texts of the same
+ * segment at the same time. Large caches only are split, every segment
+ * holds at least MIN_SEGMENT_ENTRIES texts. The total length is shared by
+ * all segments: a segment first evicts its own least recently used texts
+ * and then the ones of the other segments, so any text up to the limit
+ * can be cached.
+ * <p>
+ * A cache belongs to the glyph tables its texts are shaped with. When the
+ * tables change the parser replaces the cache by an empty one for the new
+ * tables, which keeps counting the hits, misses and evictions.
+ *
+ * @author Ali-RS
+ */
+class ShapedTextCache {
+
+    private final static int MAX_SEGMENTS = 16;
+    private final static int MIN_SEGMENT_ENTRIES = 64;
+
+    private final Segment[] segments;
+    private final int maxEntries;
+    private final int maxCharacters;
+    private final PersianGlyphs glyphs;
+    /**
+     * The total length of the texts of all the segments.
+     */
+    private final AtomicInteger characters = new AtomicInteger();
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    /**
+     * @param maxEntries the maximum number of cached texts
+     * @param maxCharacters the maximum total length of the cached texts, each
+     * text counted once for its original and once for its shaped form
+     * @param glyphs the glyph tables the texts are shaped with
+     */
+    ShapedTextCache(int maxEntries, int maxCharacters, PersianGlyphs glyphs) {
+        this(maxEntries, maxCharacters, glyphs, new LongAdder(), new LongAdder(), new LongAdder());
+    }
+
+    private ShapedTextCache(int maxEntries, int maxCharacters, PersianGlyphs glyphs,
+            LongAdder hits, LongAdder misses, LongAdder evictions) {
+        this.maxEntries = maxEntries;
+        this.glyphs = glyphs;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        int count = 1;
+        while (count < MAX_SEGMENTS && count * 2 * MIN_SEGMENT_ENTRIES <= maxEntries) {
+            count *= 2;
+        }
+        this.maxCharacters = maxCharacters;
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(maxEntries / count);
+        }
+    }
+
+    /**
+     * Returns an empty cache with the same limits for other glyph tables,
+     * which adds its hits, misses and evictions to the ones of this cache.
+     */
+    ShapedTextCache withGlyphs(PersianGlyphs glyphs) {
+        return new ShapedTextCache(maxEntries, maxCharacters, glyphs, hits, misses, evictions);
+    }
+
+    /**
+     * @return the glyph tables the texts of this cache are shaped with
+     */
+    PersianGlyphs getGlyphs() {
+        return glyphs;
+    }
+
+    private int segmentIndex(String text) {
+        int h = text.hashCode();
+        return (h ^ (h >>> 16)) & (segments.length - 1);
+    }
+
+    /**
+     * Returns the shaped text of the given text, or null if it is not cached.
+     */
+    String get(String text) {
+        String shaped = segments[segmentIndex(text)].get(text);
+        if (shaped == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return shaped;
+    }
+
+    /**
+     * Adds the text and returns the number of entries evicted to make room.
+     */
+    int put(String text, String shaped) {
+        if (text.length() * 2 > maxCharacters) {
+            return 0;
+        }
+        int index = segmentIndex(text);
+        int evicted = segments[index].put(text, shaped);
+        // Make room in the other segments if this one ran out of texts
+        for (int i = 1; i < segments.length && characters.get() > maxCharacters; i++) {
+            evicted += segments[(index + i) & (segments.length - 1)].evict(0);
+        }
+        if (evicted > 0) {
+            evictions.add(evicted);
+        }
+        return evicted;
+    }
+
+    /**
+     * Adds the cached texts and their shaped forms to the lists, from the
+     * least to the most recently used of each segment.
+     */
+    void snapshot(List<String> texts, List<String> shaped) {
+        for (Segment segment : segments) {
+            segment.snapshot(texts, shaped);
+        }
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * A least recently used part of the cache, guarded by its own lock.
+     */
+    private class Segment {
+
+        private final LinkedHashMap<String, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final int maxEntries;
+
+        Segment(int maxEntries) {
+            this.maxEntries = Math.max(maxEntries, 1);
+        }
+
+        synchronized String get(String text) {
+            return entries.get(text);
+        }
+
+        /**
+         * Adds the text and returns the number of entries evicted to make room.
+         */
+        synchronized int put(String text, String shaped) {
+            String previous = entries.put(text, shaped);
+            if (previous == null) {
+                characters.addAndGet(text.length() * 2);
+            }
+            // The text just added is the most recently used, so it is kept
+            return evict(1);
+        }
+
+        /**
+         * Evicts the least recently used texts while the segment has too many
+         * or the cache is too large, keeping at least the given number.
+         *
+         * @return the number of evicted texts
+         */
+        synchronized int evict(int keep) {
+            int evicted = 0;
+            Iterator<Map.Entry<String, String>> it = entries.entrySet().iterator();
+            while (entries.size() > maxEntries
+                    || (entries.size() > keep && characters.get() > maxCharacters)) {
+                Map.Entry<String, String> eldest = it.next();
+                characters.addAndGet(-eldest.getKey().length() * 2);
+                it.remove();
+                evicted++;
+            }
+            return evicted;
+        }
+
+        synchronized void snapshot(List<String> texts, List<String> shaped) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                texts.add(entry.getKey());
+                shaped.add(entry.getValue());
+            }
+        }
+
+        synchronized void clear() {
+            for (String text : entries.keySet()) {
+                characters.addAndGet(-text.length() * 2);
+            }
+            entries.clear();
+        }
+    }
+}
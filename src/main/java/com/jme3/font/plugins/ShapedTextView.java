@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import java.util.Arrays;
+
+/**
+ * A parsed text which shapes each character when it is read instead of
+ * copying the whole text, returned by {@link PersianGlyphParser#parseView(CharSequence)}.
+ * <p>
+ * The view only keeps the left-to-right runs longer than one character,
+ * found by a single scan of the text. A read maps the index through the run
+ * it falls in (a binary search) and shapes that one character from its
+ * neighbours in the text.
+ *
+ * @author Ali-RS
+ */
+class ShapedTextView implements CharSequence {
+
+    private final CharSequence text;
+    private final PersianGlyphs glyphs;
+    /**
+     * The start and end of every run to reverse, in order.
+     */
+    private final int[] runStarts;
+    private final int[] runEnds;
+    private final int runCount;
+
+    ShapedTextView(CharSequence text, PersianGlyphs glyphs) {
+        this.text = text;
+        this.glyphs = glyphs;
+
+        int[] starts = new int[4];
+        int[] ends = new int[4];
+        int count = 0;
+        int runStart = -1;
+        int runEnd = 0;
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : 0;
+            if (i < n && PersianGlyphParser.isLeftToRight(c)) {
+                if (runStart < 0) {
+                    runStart = i;
+                }
+                runEnd = i + 1;
+            } else if (i < n && runEnd == i && runStart >= 0 && PersianGlyphParser.extendsCluster(c)) {
+                runEnd = i + 1;
+            } else if (runStart >= 0 && (i == n || PersianGlyphParser.endsRun(c))) {
+                if (runEnd - runStart > 1) {
+                    if (count == starts.length) {
+                        starts = Arrays.copyOf(starts, count * 2);
+                        ends = Arrays.copyOf(ends, count * 2);
+                    }
+                    starts[count] = runStart;
+                    ends[count] = runEnd;
+                    count++;
+                }
+                runStart = -1;
+            }
+        }
+        this.runStarts = starts;
+        this.runEnds = ends;
+        this.runCount = count;
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= text.length()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + text.length());
+        }
+        return PersianGlyphParser.shapeAt(glyphs, text, getLogicalIndex(index));
+    }
+
+    /**
+     * Returns the index in the text of the character shown at the given index.
+     * Runs are mirrored except for surrogate pairs and letters with their
+     * marks, which keep their order.
+     */
+    private int getLogicalIndex(int index) {
+        int low = 0;
+        int high = runCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (runEnds[mid] <= index) {
+                low = mid + 1;
+            } else if (runStarts[mid] > index) {
+                high = mid - 1;
+            } else {
+                return getLogicalIndex(runStarts[mid], runEnds[mid], index);
+            }
+        }
+        return index;
+    }
+
+    private int getLogicalIndex(int runStart, int runEnd, int index) {
+        int mirrored = runStart + runEnd - 1 - index;
+        int clusterStart = mirrored;
+        while (clusterStart > runStart && PersianGlyphParser.extendsCluster(text.charAt(clusterStart))) {
+            clusterStart--;
+        }
+        int clusterEnd = mirrored + 1;
+        while (clusterEnd < runEnd && PersianGlyphParser.extendsCluster(text.charAt(clusterEnd))) {
+            clusterEnd++;
+        }
+        return clusterStart + index - (runStart + runEnd - clusterEnd);
+    }
+
+    /**
+     * Returns a copy of the range, only that range is shaped.
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || start > end || end > text.length()) {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of bounds for length " + text.length());
+        }
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = charAt(i);
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, text.length()).toString();
+    }
+}
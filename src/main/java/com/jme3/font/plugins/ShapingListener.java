@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+/**
+ * Receives an event for every text parsed by a {@link PersianGlyphParser}
+ * with {@link ShapingMetrics}, to forward them to an application's own
+ * telemetry. Listeners are called on the parsing thread and must be quick.
+ *
+ * @author Ali-RS
+ */
+public interface ShapingListener {
+
+    /**
+     * How a text was parsed.
+     */
+    public enum Outcome {
+        /**
+         * The text had nothing to shape or reorder and was returned as is.
+         */
+        FastPath,
+        /**
+         * The text was shaped, the cache being disabled.
+         */
+        Shaped,
+        /**
+         * The text was found in the cache.
+         */
+        CacheHit,
+        /**
+         * The text was not in the cache and was shaped.
+         */
+        CacheMiss
+    }
+
+    /**
+     * Called after a text is parsed.
+     *
+     * @param length the length of the text
+     * @param outcome how the text was parsed
+     * @param nanos the time spent parsing the text, or -1 if the call was not
+     * sampled
+     */
+    public void textParsed(int length, Outcome outcome, long nanos);
+}
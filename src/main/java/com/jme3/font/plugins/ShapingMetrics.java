@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts how much work a {@link PersianGlyphParser} does: parse() calls,
+ * characters parsed, time spent, fast path and cache use and the longest
+ * text. Enable it with {@link PersianGlyphParser#setMetrics(ShapingMetrics)},
+ * then read it from code, from JMX once {@link #register(String) registered}
+ * or through {@link ShapingListener listeners}.
+ * <p>
+ * Counters are LongAdders, so parsing threads do not contend, and only one
+ * call in {@link #getSampleRate() sampleRate} reads the clock. Without
+ * metrics a parser only pays for a null check.
+ *
+ * @author Ali-RS
+ */
+public class ShapingMetrics implements ShapingMetricsMBean {
+
+    private final static int DEFAULT_SAMPLE_RATE = 64;
+
+    private final int sampleRate;
+    private final LongAdder parseCalls = new LongAdder();
+    private final LongAdder charactersParsed = new LongAdder();
+    private final LongAdder sampledNanos = new LongAdder();
+    private final LongAdder sampledCalls = new LongAdder();
+    private final LongAdder fastPathHits = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder cacheEvictions = new LongAdder();
+    private final LongAccumulator largestInput = new LongAccumulator(Math::max, 0);
+    private final CopyOnWriteArrayList<ShapingListener> listeners = new CopyOnWriteArrayList<>();
+    private ObjectName objectName;
+
+    public ShapingMetrics() {
+        this(DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * @param sampleRate one in how many parse() calls is timed, 1 to time all
+     * of them
+     */
+    public ShapingMetrics(int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Sample rate must be at least 1");
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    public void addListener(ShapingListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ShapingListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server, under
+     * com.jme3.font.plugins:type=ShapingMetrics,name=<i>name</i>.
+     *
+     * @param name the name of the metrics, like the name of the font
+     * @throws JMException if the registration fails
+     */
+    public synchronized void register(String name) throws JMException {
+        unregister();
+        ObjectName on = new ObjectName("com.jme3.font.plugins:type=ShapingMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+        objectName = on;
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server, if registered.
+     *
+     * @throws JMException if the removal fails
+     */
+    public synchronized void unregister() throws JMException {
+        if (objectName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+
+    /**
+     * Returns true if the coming parse() call should be timed.
+     */
+    boolean sample() {
+        return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+    }
+
+    /**
+     * Records a parse() call.
+     *
+     * @param nanos the time the call took, or -1 if it was not sampled
+     */
+    void record(int length, ShapingListener.Outcome outcome, long nanos) {
+        parseCalls.increment();
+        charactersParsed.add(length);
+        largestInput.accumulate(length);
+        if (nanos >= 0) {
+            sampledCalls.increment();
+            sampledNanos.add(nanos);
+        }
+        switch (outcome) {
+            case FastPath:
+                fastPathHits.increment();
+                break;
+            case CacheHit:
+                cacheHits.increment();
+                break;
+            case CacheMiss:
+                cacheMisses.increment();
+                break;
+            default:
+                break;
+        }
+        for (ShapingListener listener : listeners) {
+            listener.textParsed(length, outcome, nanos);
+        }
+    }
+
+    void recordEvictions(int count) {
+        cacheEvictions.add(count);
+    }
+
+    @Override
+    public long getParseCalls() {
+        return parseCalls.sum();
+    }
+
+    @Override
+    public long getCharactersParsed() {
+        return charactersParsed.sum();
+    }
+
+    @Override
+    public long getSampledNanos() {
+        return sampledNanos.sum();
+    }
+
+    @Override
+    public long getSampledCalls() {
+        return sampledCalls.sum();
+    }
+
+    @Override
+    public long getEstimatedNanos() {
+        long sampled = sampledCalls.sum();
+        return sampled == 0 ? 0 : sampledNanos.sum() * parseCalls.sum() / sampled;
+    }
+
+    @Override
+    public long getFastPathHits() {
+        return fastPathHits.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public long getCacheEvictions() {
+        return cacheEvictions.sum();
+    }
+
+    @Override
+    public long getLargestInput() {
+        return largestInput.get();
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public void reset() {
+        parseCalls.reset();
+        charactersParsed.reset();
+        sampledNanos.reset();
+        sampledCalls.reset();
+        fastPathHits.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        cacheEvictions.reset();
+        largestInput.reset();
+    }
+}
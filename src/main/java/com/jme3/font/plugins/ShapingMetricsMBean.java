@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+/**
+ * The JMX view of {@link ShapingMetrics}.
+ *
+ * @author Ali-RS
+ */
+public interface ShapingMetricsMBean {
+
+    /**
+     * @return the number of parse() calls
+     */
+    public long getParseCalls();
+
+    /**
+     * @return the total length of the parsed texts
+     */
+    public long getCharactersParsed();
+
+    /**
+     * @return the time spent in the sampled parse() calls, in nanoseconds
+     */
+    public long getSampledNanos();
+
+    /**
+     * @return the number of parse() calls timed
+     */
+    public long getSampledCalls();
+
+    /**
+     * @return the estimated total time spent in parse(), in nanoseconds,
+     * extrapolated from the sampled calls
+     */
+    public long getEstimatedNanos();
+
+    /**
+     * @return the number of texts returned as is, having nothing to shape
+     */
+    public long getFastPathHits();
+
+    public long getCacheHits();
+
+    public long getCacheMisses();
+
+    public long getCacheEvictions();
+
+    /**
+     * @return the length of the longest text parsed
+     */
+    public long getLargestInput();
+
+    /**
+     * @return one in how many parse() calls is timed
+     */
+    public int getSampleRate();
+
+    /**
+     * Sets all the counters back to zero.
+     */
+    public void reset();
+}
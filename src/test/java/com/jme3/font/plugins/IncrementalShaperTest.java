@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that IncrementalShaper keeps the parsed form of the text it edits
+ * equal to parse() of the whole text.
+ *
+ * @author Ali-RS
+ */
+public class IncrementalShaperTest {
+
+    private final static int EDITS = 5000;
+
+    @Test
+    public void testEditsEqualParse() {
+        PersianGlyphParser parser = new PersianGlyphParser();
+        IncrementalShaper shaper = new IncrementalShaper(parser);
+        RandomTexts texts = new RandomTexts(7);
+        for (int i = 0; i < EDITS; i++) {
+            int length = shaper.length();
+            int start = texts.nextInt(length + 1);
+            int end = start + texts.nextInt(Math.min(length - start, 4) + 1);
+            String inserted = texts.next(length > 200 ? 0 : 4);
+            shaper.replace(start, end, inserted);
+
+            String text = shaper.getText().toString();
+            Assert.assertEquals(text, parser.parse(text).toString(), shaper.toString());
+            Assert.assertEquals(text, shaper.toString(), shaper.getShapedText().toString());
+        }
+    }
+
+    @Test
+    public void testTypingEqualsParse() {
+        PersianGlyphParser parser = new PersianGlyphParser();
+        RandomTexts texts = new RandomTexts(8);
+        for (int i = 0; i < 200; i++) {
+            String text = texts.next(40);
+            IncrementalShaper shaper = new IncrementalShaper(parser);
+            for (int j = 0; j < text.length(); j++) {
+                shaper.insert(j, text.substring(j, j + 1));
+                Assert.assertEquals(text, parser.parse(text.substring(0, j + 1)).toString(), shaper.toString());
+            }
+            while (shaper.length() > 0) {
+                shaper.delete(shaper.length() - 1, shaper.length());
+                Assert.assertEquals(text, parser.parse(shaper.getText()).toString(), shaper.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testEditAfterTablesChangeReshapesWholeText() {
+        PersianGlyphParser parser = new PersianGlyphParser();
+        IncrementalShaper shaper = new IncrementalShaper(parser, "ببب");
+        // The forms of peh
+        parser.setGlyphShapes('ب', 'ﭖ', 'ﭗ', 'ﭘ', 'ﭙ');
+        shaper.insert(3, "ب");
+        Assert.assertEquals(parser.parse("بببب").toString(), shaper.toString());
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.export.binary.BinaryImporter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the shaping and reordering rules of PersianGlyphParser, and that
+ * all the ways of parsing a text give the output of parse().
+ *
+ * @author Ali-RS
+ */
+public class PersianGlyphParserTest {
+
+    private final static int ITERATIONS = 2000;
+    private final static int MAX_LENGTH = 60;
+
+    private final PersianGlyphParser parser = new PersianGlyphParser();
+
+    @Test
+    public void testLineBreaksEndLeftToRightRuns() {
+        Assert.assertEquals("21\n43", parse("12\n34"));
+        Assert.assertEquals("erocS\n321", parse("Score\n123"));
+        Assert.assertEquals("ba\r\ndc", parse("ab\r\ncd"));
+        Assert.assertEquals("ba dc", parse("ab cd"));
+        Assert.assertTrue(parse("سلام 12\n34 خدا").contains(" 21\n43 "));
+    }
+
+    @Test
+    public void testMarksDoNotBreakJoining() {
+        Assert.assertEquals("ﺑَﺐ", parse("بَب"));
+        Assert.assertEquals("ﺑَّﺒﺐ", parse("بَّبب"));
+
+        // Removing the marks does not change the shapes of the letters
+        RandomTexts texts = new RandomTexts(1);
+        for (int i = 0; i < ITERATIONS; i++) {
+            String text = texts.next(MAX_LENGTH);
+            Assert.assertEquals(text, parse(removeMarks(text)), removeMarks(parse(text)));
+        }
+    }
+
+    @Test
+    public void testSurrogatePairsAndMarksKeepTheirOrder() {
+        Assert.assertEquals("\uD83D\uDE00 ih", parse("hi \uD83D\uDE00"));
+        Assert.assertEquals("b\uD83D\uDE00a", parse("a\uD83D\uDE00b"));
+        Assert.assertEquals(parse("سلام") + " \uD83D\uDE00", parse("سلام \uD83D\uDE00"));
+        Assert.assertEquals("ba\u0301", parse("a\u0301b"));
+        Assert.assertEquals("ba\u0301 ", parse("a\u0301b "));
+        Assert.assertEquals("ب ba\u0301", parse("ب a\u0301b"));
+
+        for (String text : new String[]{"hi \uD83D\uDE00", "سلام \uD83D\uDE00 ok", "ab\u0301\u0301 c\uD83D\uDE00d"}) {
+            String expected = parse(text);
+            Assert.assertEquals(text, expected, parser.parseWithIndexMaps(text).toString());
+            Assert.assertEquals(text, expected, parser.parseView(text).toString());
+            Assert.assertEquals(text, text, parser.unshape(expected));
+        }
+    }
+
+    @Test
+    public void testLettersWithoutFormsDoNotJoin() {
+        Assert.assertEquals("بݐب", parse("بݐب"));
+        // Noon ghunna has no initial form, only the letter before it joins
+        Assert.assertEquals("ﺑﮟب", parse("بںب"));
+    }
+
+    @Test
+    public void testSingleCharacterIsLeftAsIs() throws IOException {
+        parser.setGlyphShapes('ب', 'I', 'F', 'N', 'M');
+        Assert.assertEquals("ب", parse("ب"));
+        Assert.assertEquals("ب", parser.parseWithIndexMaps("ب").toString());
+        Assert.assertEquals("ب", parser.parseView("ب").toString());
+        Assert.assertEquals("ب", parseStream("ب", 1));
+        Assert.assertEquals("ب", new IncrementalShaper(parser, "ب").toString());
+    }
+
+    @Test
+    public void testAsciiGlyphShapes() {
+        parser.setGlyphShapes('x', 'I', 'F', 'N', 'M');
+        Assert.assertEquals("aIa", parse("axa"));
+        Assert.assertEquals("aIa", parser.parseWithIndexMaps("axa").toString());
+        Assert.assertEquals("aIa", parser.parseView("axa").toString());
+    }
+
+    @Test
+    public void testIndexMapsAreInversePermutations() {
+        RandomTexts texts = new RandomTexts(2);
+        ShapedText result = new ShapedText();
+        for (int i = 0; i < ITERATIONS; i++) {
+            String text = texts.next(MAX_LENGTH);
+            parser.parseWithIndexMaps(text, result);
+            Assert.assertEquals(text, parse(text), result.toString());
+
+            boolean[] seen = new boolean[text.length()];
+            for (int logical = 0; logical < text.length(); logical++) {
+                int visual = result.getVisualIndex(logical);
+                Assert.assertFalse(text, seen[visual]);
+                seen[visual] = true;
+                Assert.assertEquals(text, logical, result.getLogicalIndex(visual));
+            }
+        }
+    }
+
+    @Test
+    public void testUnshapeRestoresText() {
+        RandomTexts texts = new RandomTexts(3);
+        for (int i = 0; i < ITERATIONS; i++) {
+            String text = texts.next(MAX_LENGTH);
+            Assert.assertEquals(text, parser.unshape(parse(text)));
+        }
+    }
+
+    @Test
+    public void testViewEqualsParse() {
+        RandomTexts texts = new RandomTexts(4);
+        for (int i = 0; i < ITERATIONS; i++) {
+            String text = texts.next(MAX_LENGTH);
+            String expected = parse(text);
+            CharSequence view = parser.parseView(text);
+            Assert.assertEquals(text, expected, view.toString());
+            for (int j = 0; j < text.length(); j++) {
+                Assert.assertEquals(text, expected.charAt(j), view.charAt(j));
+            }
+            int start = texts.nextInt(text.length() + 1);
+            int end = start + texts.nextInt(text.length() - start + 1);
+            Assert.assertEquals(text, expected.substring(start, end), view.subSequence(start, end).toString());
+        }
+    }
+
+    @Test
+    public void testStreamEqualsParse() throws IOException {
+        RandomTexts texts = new RandomTexts(5);
+        for (int i = 0; i < ITERATIONS; i++) {
+            String text = texts.next(MAX_LENGTH);
+            Assert.assertEquals(text, parse(text), parseStream(text, 1 + texts.nextInt(8)));
+        }
+
+        // Longer than a chunk, with a left-to-right run across chunks
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 10000) {
+            text.append(texts.next(MAX_LENGTH));
+        }
+        char[] run = new char[5000];
+        Arrays.fill(run, 'a');
+        text.insert(3000, run);
+        Assert.assertEquals(parse(text.toString()), parseStream(text.toString(), 1000));
+    }
+
+    @Test
+    public void testCacheAndBuffersEqualParse() {
+        PersianGlyphParser cached = new PersianGlyphParser();
+        cached.setCacheLimits(64, 2000);
+        PersianGlyphParser reusing = new PersianGlyphParser();
+        reusing.setReuseBuffers(true);
+        RandomTexts texts = new RandomTexts(6);
+        for (int i = 0; i < ITERATIONS; i++) {
+            String text = texts.next(MAX_LENGTH);
+            String expected = parse(text);
+            Assert.assertEquals(text, expected, cached.parse(text).toString());
+            Assert.assertEquals(text, expected, cached.parse(text).toString());
+            Assert.assertEquals(text, expected, reusing.parse(text).toString());
+            char[] chars = new char[text.length() + 2];
+            parser.parseInto(text, chars, 2);
+            Assert.assertEquals(text, expected, new String(chars, 2, text.length()));
+        }
+    }
+
+    @Test
+    public void testTextsUpToTheCacheLimitAreCached() {
+        parser.setCacheLimits(64, 2000);
+        char[] chars = new char[900];
+        Arrays.fill(chars, 'ب');
+        String text = new String(chars);
+        parser.parse(text);
+        parser.parse(text);
+        Assert.assertEquals(1, parser.getCacheHits());
+        Assert.assertEquals(0, parser.getCacheEvictions());
+
+        // Only one text of that length fits
+        parser.parse(text.substring(1));
+        Assert.assertEquals(1, parser.getCacheEvictions());
+    }
+
+    @Test
+    public void testChangingTablesReplacesCache() {
+        parser.setCacheLimits(64, 2000);
+        Assert.assertEquals("ﺑﺐ", parse("بب"));
+        Assert.assertEquals("ﺑﺐ", parse("بب"));
+        // The forms of peh
+        parser.setGlyphShapes('ب', 'ﭖ', 'ﭗ', 'ﭘ', 'ﭙ');
+        Assert.assertEquals("ﭘﭗ", parse("بب"));
+        Assert.assertEquals(1, parser.getCacheHits());
+        Assert.assertEquals(2, parser.getCacheMisses());
+    }
+
+    @Test
+    public void testSavedParserKeepsTablesAndCache() throws IOException {
+        parser.setGlyphShapes('ݐ', 'ݐ', 'F', 'I', 'M');
+        parser.setJoining('ݐ', true, true);
+        parser.setTransparent('\u200B');
+        parser.setCacheLimits(16, 1000);
+        parser.setSerializeCache(true);
+        String text = "بݐ\u200Bب 12";
+        String expected = parse(text);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryExporter.getInstance().save(parser, out);
+        PersianGlyphParser loaded = (PersianGlyphParser) BinaryImporter.getInstance()
+                .load(new ByteArrayInputStream(out.toByteArray()));
+
+        Assert.assertEquals(parser.getTablesVersion(), loaded.getTablesVersion());
+        Assert.assertEquals(expected, loaded.parse(text).toString());
+        Assert.assertEquals(1, loaded.getCacheHits());
+        String other = "ݐ\u200Bبݐ";
+        Assert.assertEquals(parse(other), loaded.parse(other).toString());
+        Assert.assertEquals("IF", parse(other).replaceAll("[^A-Z]", ""));
+    }
+
+    private String parse(String text) {
+        return parser.parse(text).toString();
+    }
+
+    private String parseStream(String text, int readSize) throws IOException {
+        StringWriter out = new StringWriter();
+        parser.parse(new ChunkedReader(text, readSize), out);
+        return out.toString();
+    }
+
+    private String removeMarks(String text) {
+        StringBuilder result = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            if (!parser.getGlyphs().isTransparent(c)) {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns at most a given number of characters per read, like a network
+     * stream.
+     */
+    private static class ChunkedReader extends Reader {
+
+        private final Reader in;
+        private final int readSize;
+
+        ChunkedReader(String text, int readSize) {
+            this.in = new StringReader(text);
+            this.readSize = readSize;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return in.read(cbuf, off, Math.min(len, readSize));
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import com.jme3.font.BitmapCharacter;
+import com.jme3.font.BitmapCharacterSet;
+import com.jme3.font.BitmapFont;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the lines of PersianTextLayout with a font whose joined forms are
+ * much narrower than the unjoined ones.
+ *
+ * @author Ali-RS
+ */
+public class PersianTextLayoutTest {
+
+    private final PersianGlyphParser parser = new PersianGlyphParser();
+    private final PersianTextLayout layout = new PersianTextLayout(createFont(10, 2), parser);
+
+    /**
+     * Beh is 10 wide isolated or final and 2 initial or medial by default,
+     * spaces are 3 and Latin letters and digits 5.
+     */
+    private static BitmapFont createFont(int unjoinedWidth, int joinedWidth) {
+        BitmapCharacterSet charSet = new BitmapCharacterSet();
+        charSet.setRenderedSize(10);
+        addCharacter(charSet, 'ب', unjoinedWidth);
+        addCharacter(charSet, 'ﺏ', unjoinedWidth);
+        addCharacter(charSet, 'ﺐ', unjoinedWidth);
+        addCharacter(charSet, 'ﺑ', joinedWidth);
+        addCharacter(charSet, 'ﺒ', joinedWidth);
+        addCharacter(charSet, ' ', 3);
+        for (char c = 'a'; c <= 'z'; c++) {
+            addCharacter(charSet, c, 5);
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            addCharacter(charSet, c, 5);
+        }
+        BitmapFont font = new BitmapFont();
+        font.setCharSet(charSet);
+        return font;
+    }
+
+    private static void addCharacter(BitmapCharacterSet charSet, char c, int advance) {
+        BitmapCharacter character = new BitmapCharacter();
+        character.setXAdvance(advance);
+        charSet.addCharacter(c, character);
+    }
+
+    @Test
+    public void testLinesBrokenInsideWordsFit() {
+        List<PersianTextLayout.Line> lines = layout.layout("بببببببببب", 10, 10);
+        Assert.assertEquals(10, lines.size());
+        for (PersianTextLayout.Line line : lines) {
+            Assert.assertEquals(10, line.getWidth(), 0);
+        }
+
+        lines = layout.layout("بببببببببب", 20, 10);
+        Assert.assertEquals(2, lines.size());
+        Assert.assertEquals("ﺑﺒﺒﺒﺒﺐ", lines.get(0).getText());
+        Assert.assertEquals(20, lines.get(0).getWidth(), 0);
+    }
+
+    @Test(timeout = 10000)
+    public void testLongWordIsBrokenInLinearTime() {
+        char[] word = new char[2000];
+        Arrays.fill(word, 'ب');
+        PersianTextLayout wideLayout = new PersianTextLayout(createFont(1000, 1), parser);
+        List<PersianTextLayout.Line> lines = wideLayout.layout(new String(word), 1000, 10);
+        Assert.assertEquals(2000, lines.size());
+        for (PersianTextLayout.Line line : lines) {
+            Assert.assertEquals(1000, line.getWidth(), 0);
+        }
+    }
+
+    @Test
+    public void testLinesFitAndCoverTheText() {
+        RandomTexts texts = new RandomTexts(9);
+        for (int i = 0; i < 1000; i++) {
+            String text = texts.next(80).replaceAll("[^ب a-z0-9\n\r\u2029]", "ب");
+            float maxWidth = 10 + texts.nextInt(60);
+            int end = 0;
+            for (PersianTextLayout.Line line : layout.layout(text, maxWidth, 10)) {
+                if (line.getEnd() - line.getStart() > 1) {
+                    Assert.assertTrue(text, line.getWidth() <= maxWidth);
+                }
+                // Only spaces and paragraph separators are left out between lines
+                Assert.assertTrue(text, text.substring(end, line.getStart()).matches("[ \n\r\u2029]*"));
+                Assert.assertEquals(text, parser.parse(text.substring(line.getStart(), line.getEnd())).toString(),
+                        line.getText());
+                end = line.getEnd();
+            }
+            Assert.assertTrue(text, text.substring(end).matches("[ \n\r\u2029]*"));
+        }
+    }
+
+    @Test
+    public void testLineFeedsBreakLines() {
+        List<PersianTextLayout.Line> lines = layout.layout("12\n34", 100, 10);
+        Assert.assertEquals(2, lines.size());
+        Assert.assertEquals("21", lines.get(0).getText());
+        Assert.assertEquals("43", lines.get(1).getText());
+
+        lines = layout.layout("ab\r\ncd\u2029ef", 100, 10);
+        Assert.assertEquals(3, lines.size());
+        Assert.assertEquals("ba", lines.get(0).getText());
+        Assert.assertEquals("dc", lines.get(1).getText());
+        Assert.assertEquals("fe", lines.get(2).getText());
+    }
+}
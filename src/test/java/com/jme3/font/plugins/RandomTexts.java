@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import java.util.Random;
+
+/**
+ * Random texts mixing everything the parser handles differently: Persian
+ * letters, marks, joining controls, tatweel, letters without presentation
+ * forms, Latin letters, Latin and Persian digits, spaces, punctuation, line
+ * breaks, emoji and Latin marks.
+ *
+ * @author Ali-RS
+ */
+class RandomTexts {
+
+    private final static String[] ALPHABETS = {
+        "ابپتثجچحخدذرزژسشصضطظعغفقکگلمنوهیئآة",
+        "\u064B\u064E\u064F\u0650\u0651\u0652\u0670",
+        "\u200C\u200D\u0640\u0750\u0620\u06BA",
+        "abcxyzABC",
+        "0123456789۰۱۲۳۴٥",
+        "   ",
+        ".,:!؟،-/()%",
+        "\n\r\u2029",
+        "\uD83D\uDE00\uD83C\uDF0D\u0301\u20DD"
+    };
+
+    private final Random random;
+
+    RandomTexts(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Returns a text of up to the given length, with runs of characters of
+     * the same kind like words and numbers.
+     */
+    String next(int maxLength) {
+        int length = random.nextInt(maxLength + 1);
+        StringBuilder text = new StringBuilder(length);
+        String alphabet = ALPHABETS[0];
+        while (text.length() < length) {
+            if (random.nextInt(4) == 0) {
+                alphabet = ALPHABETS[random.nextInt(ALPHABETS.length)];
+            }
+            int i = random.nextInt(alphabet.length());
+            if (Character.isLowSurrogate(alphabet.charAt(i))) {
+                i--;
+            }
+            text.appendCodePoint(alphabet.codePointAt(i));
+        }
+        return text.toString();
+    }
+
+    int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+}
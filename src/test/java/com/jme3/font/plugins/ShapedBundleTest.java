@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2009-2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.font.plugins;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that bundles give back the texts parse() produces and that damaged
+ * files are refused when opened.
+ *
+ * @author Ali-RS
+ */
+public class ShapedBundleTest {
+
+    private final PersianGlyphParser parser = new PersianGlyphParser();
+    private final Map<String, String> texts = new HashMap<>();
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        RandomTexts random = new RandomTexts(10);
+        for (int i = 0; i < 500; i++) {
+            texts.put("key" + i, random.next(60));
+        }
+        file = Files.createTempFile("bundle", ".bin");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            ShapedBundle.write(texts, parser, out);
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testTextsEqualParse() throws IOException {
+        ShapedBundle bundle = ShapedBundle.open(file, parser);
+        Assert.assertEquals(texts.size(), bundle.size());
+        for (Map.Entry<String, String> entry : texts.entrySet()) {
+            Assert.assertEquals(parser.parse(entry.getValue()).toString(), bundle.get(entry.getKey()).toString());
+        }
+        Assert.assertNull(bundle.get("missing"));
+    }
+
+    @Test
+    public void testWritingLeavesCacheAndMetricsUntouched() throws IOException {
+        PersianGlyphParser cached = new PersianGlyphParser();
+        cached.setCacheLimits(1000, 100000);
+        ShapingMetrics metrics = new ShapingMetrics();
+        cached.setMetrics(metrics);
+        ShapedBundle.write(texts, cached, new ByteArrayOutputStream());
+        Assert.assertEquals(0, cached.getCacheMisses());
+        Assert.assertEquals(0, metrics.getParseCalls());
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedFileIsRefused() throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+        ShapedBundle.open(file, parser);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOtherTablesAreRefused() throws IOException {
+        PersianGlyphParser other = new PersianGlyphParser();
+        other.setGlyphShapes('ݐ', 'ݐ', 'F', 'I', 'M');
+        ShapedBundle.open(file, other);
+    }
+}